@@ -0,0 +1,194 @@
+package tech.aomi.codegen;
+
+import io.swagger.v3.oas.models.OpenAPI;
+import io.swagger.v3.oas.models.media.Schema;
+import org.openapitools.codegen.ClientOptInput;
+import org.openapitools.codegen.CodegenConfig;
+import org.openapitools.codegen.CodegenConstants;
+import org.openapitools.codegen.CodegenModel;
+import org.openapitools.codegen.CodegenOperation;
+import org.openapitools.codegen.DefaultGenerator;
+import org.openapitools.codegen.config.CodegenConfigurator;
+import org.openapitools.codegen.model.ModelMap;
+import org.openapitools.codegen.model.ModelsMap;
+import org.openapitools.codegen.model.OperationMap;
+import org.openapitools.codegen.model.OperationsMap;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeSet;
+
+/**
+ * 基准测试的输入数据, 按 DefaultGenerator 的方式构造各阶段的参数
+ */
+final class BenchmarkFixture {
+
+    private BenchmarkFixture() {
+    }
+
+    /**
+     * 包含指定数量接口的文档, 每个 schema 对应 get/put 两个接口
+     */
+    static String spec(int operations) {
+        File file = new File("target/benchmark-specs/operations-" + operations + ".json");
+        if (file.isFile()) {
+            return file.getAbsolutePath();
+        }
+        try {
+            return new SpecSynthesizer()
+                    .schemas(Math.max(1, operations / 2))
+                    .tags(Math.max(1, operations / 50))
+                    .writeTo(file);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    /**
+     * 由 allOf 继承链组成的文档, 每 depth 个 schema 组成一条继承链
+     */
+    static String inheritanceSpec(int schemas, int depth) {
+        File file = new File("target/benchmark-specs/inheritance-" + schemas + "-" + depth + ".json");
+        if (file.isFile()) {
+            return file.getAbsolutePath();
+        }
+        try {
+            return new SpecSynthesizer()
+                    .schemas(schemas)
+                    .tags(Math.max(1, schemas / 25))
+                    .propertiesPerSchema(8)
+                    .inheritanceDepth(depth)
+                    .writeTo(file);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    /**
+     * 完成 processOpts/preprocessOpenAPI 的生成器
+     */
+    static ClientOptInput input(String generatorName, String spec, Map<String, Object> properties) {
+        Map<String, Object> props = new HashMap<>(properties);
+        props.putIfAbsent(AbstractGoWebServerGenerator.MODULE_NAME, "github.com/demo/app");
+        props.putIfAbsent(AbstractGoWebServerGenerator.MODEL_FOLDER_FIELD_NAME, "x-apifox-folder");
+        props.putIfAbsent("pubName", "demo");
+        props.putIfAbsent(MyDartDioClientCodegen.BASE_PUB_NAME, "base");
+        // 合成文档中 schema 互相引用, 上游 ExampleGenerator 的示例会指数增长, 且不属于本项目的代码
+        props.putIfAbsent(CodegenConstants.SKIP_OPERATION_EXAMPLE, "true");
+        ClientOptInput input = new CodegenConfigurator()
+                .setGeneratorName(generatorName)
+                .setInputSpec(spec)
+                .setAdditionalProperties(props)
+                .setOutputDir("target/benchmark-out/" + generatorName)
+                .toClientOptInput();
+        CodegenConfig config = input.getConfig();
+        OpenAPI openAPI = input.getOpenAPI();
+        config.processOpts();
+        config.preprocessOpenAPI(openAPI);
+        config.setOpenAPI(openAPI);
+        return input;
+    }
+
+    /**
+     * 与 DefaultGenerator.processModels 一致, 不包括最后的 postProcessModels
+     */
+    static ModelsMap modelsMap(CodegenConfig config, String name, Schema<?> schema) {
+        ModelsMap objs = new ModelsMap();
+        objs.put("package", config.modelPackage());
+        CodegenModel cm = config.fromModel(name, schema);
+        ModelMap mo = new ModelMap();
+        mo.setModel(cm);
+        mo.put("importPath", config.toModelImport(cm.classname));
+        cm.removeSelfReferenceImport();
+        objs.setModels(new ArrayList<>(Collections.singletonList(mo)));
+
+        TreeSet<String> importSet = new TreeSet<>();
+        for (String nextImport : cm.imports) {
+            String mapping = config.importMapping().get(nextImport);
+            if (mapping == null) {
+                mapping = config.toModelImport(nextImport);
+            }
+            if (mapping != null && !config.defaultIncludes().contains(mapping)) {
+                importSet.add(mapping);
+            }
+        }
+        List<Map<String, String>> imports = new ArrayList<>();
+        for (String s : importSet) {
+            Map<String, String> item = new HashMap<>();
+            item.put("import", s);
+            imports.add(item);
+        }
+        objs.setImports(imports);
+        return objs;
+    }
+
+    /**
+     * 每个 schema 一个未处理的 ModelsMap
+     */
+    @SuppressWarnings("rawtypes")
+    static Map<String, ModelsMap> modelsMaps(ClientOptInput input) {
+        CodegenConfig config = input.getConfig();
+        Map<String, ModelsMap> result = new LinkedHashMap<>();
+        for (Map.Entry<String, Schema> entry : input.getOpenAPI().getComponents().getSchemas().entrySet()) {
+            result.put(entry.getKey(), modelsMap(config, entry.getKey(), entry.getValue()));
+        }
+        return result;
+    }
+
+    /**
+     * postProcessModels 及 updateAllModels 之后的 model, 作为 postProcessAllModels 的参数
+     */
+    static Map<String, ModelsMap> processedModels(ClientOptInput input) {
+        CodegenConfig config = input.getConfig();
+        Map<String, ModelsMap> models = modelsMaps(input);
+        models.values().forEach(config::postProcessModels);
+        return config.updateAllModels(models);
+    }
+
+    static List<ModelMap> allModels(Map<String, ModelsMap> models) {
+        List<ModelMap> allModels = new ArrayList<>();
+        models.values().forEach(objs -> allModels.addAll(objs.getModels()));
+        return allModels;
+    }
+
+    /**
+     * 与 DefaultGenerator.processOperations 一致, 不包括最后的 postProcessOperationsWithModels
+     */
+    static List<OperationsMap> operations(ClientOptInput input) {
+        CodegenConfig config = input.getConfig();
+        DefaultGenerator generator = new DefaultGenerator();
+        generator.opts(input);
+        Map<String, List<CodegenOperation>> paths = generator.processPaths(input.getOpenAPI().getPaths());
+        List<OperationsMap> result = new ArrayList<>();
+        for (Map.Entry<String, List<CodegenOperation>> entry : paths.entrySet()) {
+            OperationsMap operations = new OperationsMap();
+            OperationMap objs = new OperationMap();
+            objs.setClassname(config.toApiName(entry.getKey()));
+            objs.setPathPrefix(config.toApiVarName(entry.getKey()));
+            objs.setOperation(entry.getValue());
+            operations.setOperation(objs);
+            operations.put("package", config.apiPackage());
+
+            TreeSet<String> allImports = new TreeSet<>();
+            entry.getValue().forEach(op -> allImports.addAll(op.imports));
+            List<Map<String, String>> imports = new ArrayList<>();
+            for (String nextImport : allImports) {
+                String mapping = config.importMapping().get(nextImport);
+                Map<String, String> item = new HashMap<>();
+                item.put("import", null == mapping ? config.toModelImport(nextImport) : mapping);
+                item.put("classname", nextImport);
+                imports.add(item);
+            }
+            operations.setImports(imports);
+            result.add(operations);
+        }
+        return result;
+    }
+}
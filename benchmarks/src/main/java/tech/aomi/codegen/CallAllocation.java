@@ -0,0 +1,59 @@
+package tech.aomi.codegen;
+
+import org.openjdk.jmh.annotations.AuxCounters;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import java.lang.management.ManagementFactory;
+
+/**
+ * 只统计被测方法本身分配的内存.
+ * 参数在 Level.Invocation 中重新构造的基准测试, gc profiler 的 gc.alloc.rate.norm 包含构造参数的分配, 以 callAllocBytesPerOp 为准
+ */
+@State(Scope.Thread)
+@AuxCounters(AuxCounters.Type.EVENTS)
+public class CallAllocation {
+
+    private static final com.sun.management.ThreadMXBean THREADS = (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+
+    /**
+     * 两次读取之间 getThreadAllocatedBytes 本身分配的内存
+     */
+    private long overhead;
+
+    private long start;
+
+    private long bytes;
+
+    private long calls;
+
+    @Setup(Level.Iteration)
+    public void reset() {
+        long first = allocatedBytes();
+        overhead = allocatedBytes() - first;
+        bytes = 0;
+        calls = 0;
+    }
+
+    /**
+     * 每次调用平均分配的内存(byte)
+     */
+    public double callAllocBytesPerOp() {
+        return 0 == calls ? 0 : (double) bytes / calls;
+    }
+
+    void begin() {
+        start = allocatedBytes();
+    }
+
+    void end() {
+        bytes += Math.max(0, allocatedBytes() - start - overhead);
+        calls++;
+    }
+
+    private static long allocatedBytes() {
+        return THREADS.getThreadAllocatedBytes(Thread.currentThread().getId());
+    }
+}
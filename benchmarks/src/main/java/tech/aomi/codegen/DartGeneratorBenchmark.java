@@ -0,0 +1,66 @@
+package tech.aomi.codegen;
+
+import org.openapitools.codegen.ClientOptInput;
+import org.openapitools.codegen.model.ModelsMap;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.Collections;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * MyDartDioClientCodegen.postProcessAllModels 的基准测试
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = {"-Xms2g", "-Xmx4g"})
+@State(Scope.Benchmark)
+public class DartGeneratorBenchmark {
+
+    /**
+     * 文档中的接口数量
+     */
+    @Param({"100", "1000", "10000"})
+    public int operations;
+
+    private ClientOptInput input;
+
+    private MyDartDioClientCodegen config;
+
+    /**
+     * postProcessAllModels 会修改参数, 每次调用重新构造, 分配内存见 {@link CallAllocation}
+     */
+    private Map<String, ModelsMap> models;
+
+    @Setup(Level.Trial)
+    public void setup() {
+        input = BenchmarkFixture.input("my-dart-dio", BenchmarkFixture.spec(operations), Collections.emptyMap());
+        config = (MyDartDioClientCodegen) input.getConfig();
+    }
+
+    @Setup(Level.Invocation)
+    public void prepareModels() {
+        models = BenchmarkFixture.processedModels(input);
+    }
+
+    @Benchmark
+    public Map<String, ModelsMap> postProcessAllModels(CallAllocation allocation) {
+        allocation.begin();
+        Map<String, ModelsMap> result = config.postProcessAllModels(models);
+        allocation.end();
+        return result;
+    }
+}
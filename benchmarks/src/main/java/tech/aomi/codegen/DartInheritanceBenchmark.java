@@ -0,0 +1,67 @@
+package tech.aomi.codegen;
+
+import org.openapitools.codegen.ClientOptInput;
+import org.openapitools.codegen.model.ModelsMap;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.Collections;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 深层 allOf 继承下 MyDartDioClientCodegen.postProcessAllModels 的基准测试,
+ * 主要耗时在 adaptToDartInheritance 计算祖先和合并祖先的属性
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = {"-Xms2g", "-Xmx4g"})
+@State(Scope.Benchmark)
+public class DartInheritanceBenchmark {
+
+    @Param({"1000"})
+    public int schemas;
+
+    /**
+     * 继承链的长度, 1 表示没有继承
+     */
+    @Param({"1", "10", "100", "1000"})
+    public int depth;
+
+    private ClientOptInput input;
+
+    private MyDartDioClientCodegen config;
+
+    private Map<String, ModelsMap> models;
+
+    @Setup(Level.Trial)
+    public void setup() {
+        input = BenchmarkFixture.input("my-dart-dio", BenchmarkFixture.inheritanceSpec(schemas, depth), Collections.emptyMap());
+        config = (MyDartDioClientCodegen) input.getConfig();
+    }
+
+    @Setup(Level.Invocation)
+    public void prepareModels() {
+        models = BenchmarkFixture.processedModels(input);
+    }
+
+    @Benchmark
+    public Map<String, ModelsMap> postProcessAllModels(CallAllocation allocation) {
+        allocation.begin();
+        Map<String, ModelsMap> result = config.postProcessAllModels(models);
+        allocation.end();
+        return result;
+    }
+}
@@ -0,0 +1,167 @@
+package tech.aomi.codegen;
+
+import io.swagger.v3.oas.models.media.Schema;
+import org.openapitools.codegen.ClientOptInput;
+import org.openapitools.codegen.CodegenProperty;
+import org.openapitools.codegen.model.ModelMap;
+import org.openapitools.codegen.model.ModelsMap;
+import org.openapitools.codegen.model.OperationsMap;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * AbstractGoWebServerGenerator 热点方法的基准测试, 每次调用处理整个文档
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = {"-Xms2g", "-Xmx4g"})
+public class GoGeneratorBenchmark {
+
+    @State(Scope.Benchmark)
+    public static class GoState {
+
+        /**
+         * 文档中的接口数量
+         */
+        @Param({"100", "1000", "10000"})
+        public int operations;
+
+        ClientOptInput input;
+
+        AbstractGoWebServerGenerator config;
+
+        List<ModelMap> allModels;
+
+        List<String> schemaNames;
+
+        List<PropertyInput> properties;
+
+        /**
+         * 没有复制为 ExtendedCodegenProperty 的属性
+         */
+        List<CodegenProperty> plainProperties;
+
+        @Setup(Level.Trial)
+        @SuppressWarnings("rawtypes")
+        public void setup() {
+            String spec = BenchmarkFixture.spec(operations);
+            input = BenchmarkFixture.input("my-go-gin-server", spec, Collections.emptyMap());
+            config = (AbstractGoWebServerGenerator) input.getConfig();
+            allModels = BenchmarkFixture.allModels(BenchmarkFixture.processedModels(input));
+
+            schemaNames = new ArrayList<>(input.getOpenAPI().getComponents().getSchemas().keySet());
+            properties = new ArrayList<>();
+            for (Map.Entry<String, Schema> entry : input.getOpenAPI().getComponents().getSchemas().entrySet()) {
+                Schema<?> schema = entry.getValue();
+                if (null == schema.getProperties()) {
+                    continue;
+                }
+                List<?> required = null == schema.getRequired() ? Collections.emptyList() : schema.getRequired();
+                schema.getProperties().forEach((name, p) -> properties.add(new PropertyInput(name, p, required.contains(name))));
+            }
+
+            AbstractGoWebServerGenerator plain = (AbstractGoWebServerGenerator) BenchmarkFixture.input("my-go-gin-server", spec,
+                    Collections.singletonMap(AbstractGoWebServerGenerator.LOW_MEMORY_MODE, "true")).getConfig();
+            plainProperties = new ArrayList<>(properties.size());
+            for (PropertyInput p : properties) {
+                plainProperties.add(plain.fromProperty(p.name, p.schema, p.required));
+            }
+        }
+    }
+
+    /**
+     * postProcessOperationsWithModels 会修改参数, 每次调用重新构造, 分配内存见 {@link CallAllocation}
+     */
+    @State(Scope.Thread)
+    public static class OperationsInput {
+        List<OperationsMap> operations;
+
+        @Setup(Level.Invocation)
+        public void setup(GoState go) {
+            operations = BenchmarkFixture.operations(go.input);
+        }
+    }
+
+    /**
+     * postProcessModels 会修改参数, 每次调用重新构造, 分配内存见 {@link CallAllocation}
+     */
+    @State(Scope.Thread)
+    public static class ModelsInput {
+        List<ModelsMap> models;
+
+        @Setup(Level.Invocation)
+        public void setup(GoState go) {
+            models = new ArrayList<>(BenchmarkFixture.modelsMaps(go.input).values());
+        }
+    }
+
+    static final class PropertyInput {
+        final String name;
+        final Schema<?> schema;
+        final boolean required;
+
+        PropertyInput(String name, Schema<?> schema, boolean required) {
+            this.name = name;
+            this.schema = schema;
+            this.required = required;
+        }
+    }
+
+    @Benchmark
+    public void postProcessOperationsWithModels(GoState go, OperationsInput in, CallAllocation allocation, Blackhole bh) {
+        allocation.begin();
+        for (OperationsMap objs : in.operations) {
+            bh.consume(go.config.postProcessOperationsWithModels(objs, go.allModels));
+        }
+        allocation.end();
+    }
+
+    @Benchmark
+    public void postProcessModels(GoState go, ModelsInput in, CallAllocation allocation, Blackhole bh) {
+        allocation.begin();
+        for (ModelsMap objs : in.models) {
+            bh.consume(go.config.postProcessModels(objs));
+        }
+        allocation.end();
+    }
+
+    @Benchmark
+    public void fromProperty(GoState go, Blackhole bh) {
+        for (PropertyInput p : go.properties) {
+            bh.consume(go.config.fromProperty(p.name, p.schema, p.required));
+        }
+    }
+
+    @Benchmark
+    public void getModelFolder(GoState go, Blackhole bh) {
+        for (String name : go.schemaNames) {
+            bh.consume(go.config.getModelFolder(name));
+        }
+    }
+
+    @Benchmark
+    public void extendedCodegenProperty(GoState go, Blackhole bh) {
+        for (CodegenProperty cp : go.plainProperties) {
+            bh.consume(new ExtendedCodegenProperty(cp, go.config.supportValidMultipleOf, go.config.supportValidRegexp));
+        }
+    }
+}
@@ -0,0 +1,158 @@
+package tech.aomi.codegen;
+
+import org.apache.maven.plugin.AbstractMojo;
+import org.apache.maven.plugin.MojoExecutionException;
+import org.apache.maven.plugins.annotations.LifecyclePhase;
+import org.apache.maven.plugins.annotations.Mojo;
+import org.apache.maven.plugins.annotations.Parameter;
+import org.apache.maven.project.MavenProject;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+/**
+ * 执行 generations 中配置的生成任务
+ * 1. 最新检查: 输入指纹(spec 及其引用的文件、模板、参数、版本)未变化且输出文件完整时跳过该任务, 见 {@link GenerationStamp}
+ * 2. 并行: threads 大于 1 时, 需要执行的任务在线程池中同时生成. 本插件是线程安全的, 也可以在 mvn -T 的并行构建中使用
+ * <p>
+ * 相对路径以项目的 basedir 为基础
+ */
+@Mojo(name = "generate", defaultPhase = LifecyclePhase.GENERATE_SOURCES, threadSafe = true)
+public class GenerateMojo extends AbstractMojo {
+
+    @Parameter(defaultValue = "${project}", readonly = true, required = true)
+    private MavenProject project;
+
+    @Parameter(required = true)
+    private List<GenerationJob> generations;
+
+    /**
+     * 同时执行的任务数
+     */
+    @Parameter(property = "am.openapi.threads", defaultValue = "1")
+    private int threads;
+
+    /**
+     * 忽略最新检查, 总是执行生成
+     */
+    @Parameter(property = "am.openapi.force", defaultValue = "false")
+    private boolean force;
+
+    @Parameter(property = "am.openapi.skip", defaultValue = "false")
+    private boolean skip;
+
+    @Override
+    public void execute() throws MojoExecutionException {
+        if (skip) {
+            getLog().info("Skipping am-openapi-generator");
+            return;
+        }
+        List<GenerationJob> pending = new ArrayList<>();
+        for (GenerationJob job : generations) {
+            resolvePaths(job);
+            if (!force && isUpToDate(job)) {
+                getLog().info(job.getGeneratorName() + ": " + job.getOutputDir() + " is up to date, skipped");
+                continue;
+            }
+            pending.add(job);
+        }
+        if (pending.isEmpty()) {
+            return;
+        }
+
+        Map<GenerationJob, Throwable> failures = new LinkedHashMap<>();
+        if (threads <= 1 || pending.size() == 1) {
+            for (GenerationJob job : pending) {
+                try {
+                    generate(job);
+                } catch (RuntimeException e) {
+                    failures.put(job, e);
+                }
+            }
+        } else {
+            ExecutorService executor = Executors.newFixedThreadPool(Math.min(threads, pending.size()));
+            try {
+                Map<GenerationJob, Future<?>> futures = new LinkedHashMap<>();
+                for (GenerationJob job : pending) {
+                    futures.put(job, executor.submit(() -> generate(job)));
+                }
+                for (Map.Entry<GenerationJob, Future<?>> entry : futures.entrySet()) {
+                    try {
+                        entry.getValue().get();
+                    } catch (ExecutionException e) {
+                        failures.put(entry.getKey(), e.getCause());
+                    } catch (InterruptedException e) {
+                        Thread.currentThread().interrupt();
+                        throw new MojoExecutionException("Generation interrupted", e);
+                    }
+                }
+            } finally {
+                executor.shutdownNow();
+            }
+        }
+        if (!failures.isEmpty()) {
+            failures.forEach((job, e) -> getLog().error(job.getGeneratorName() + ": " + job.getOutputDir() + " failed", e));
+            throw new MojoExecutionException(failures.size() + " of " + pending.size() + " generations failed",
+                    failures.values().iterator().next());
+        }
+    }
+
+    private void generate(GenerationJob job) {
+        long start = System.currentTimeMillis();
+        List<File> files = job.run();
+        try {
+            // 生成后计算, 包含本次生成的 .openapi-generator-ignore
+            String inputs = GenerationCache.key(job);
+            if (null != inputs) {
+                GenerationStamp.of(inputs, new File(job.getOutputDir()), files).write(job.getOutputDir());
+            }
+        } catch (IOException e) {
+            getLog().warn("Write up-to-date stamp to " + job.getOutputDir() + " failed: " + e.getMessage());
+        }
+        getLog().info(job.getGeneratorName() + ": " + files.size() + " files generated to " + job.getOutputDir()
+                + " in " + (System.currentTimeMillis() - start) + " ms");
+    }
+
+    private boolean isUpToDate(GenerationJob job) {
+        GenerationStamp stamp = GenerationStamp.read(job.getOutputDir());
+        if (null == stamp) {
+            return false;
+        }
+        try {
+            // spec 不是本地文件时 key 为 null, 每次都执行生成
+            return stamp.isUpToDate(GenerationCache.key(job), job.getOutputDir());
+        } catch (IOException e) {
+            getLog().debug("Compute input fingerprint failed: " + e.getMessage());
+            return false;
+        }
+    }
+
+    private void resolvePaths(GenerationJob job) {
+        String spec = job.getInputSpec();
+        if (null != spec && !spec.contains("://")) {
+            job.setInputSpec(resolve(spec));
+        }
+        job.setOutputDir(resolve(job.getOutputDir()));
+        job.setTemplateDir(resolve(job.getTemplateDir()));
+        job.setCacheDir(resolve(job.getCacheDir()));
+    }
+
+    private String resolve(String path) {
+        if (null == path || path.isEmpty()) {
+            return path;
+        }
+        File file = new File(path);
+        if (!file.isAbsolute()) {
+            file = new File(project.getBasedir(), path);
+        }
+        return file.getAbsolutePath();
+    }
+}
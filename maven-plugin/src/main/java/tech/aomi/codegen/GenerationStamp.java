@@ -0,0 +1,116 @@
+package tech.aomi.codegen;
+
+import io.swagger.v3.core.util.Json;
+import lombok.Getter;
+import lombok.Setter;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * Maven 插件的最新状态记录, 保存在输出目录的 .openapi-generator/maven-plugin.json
+ * 1. inputs: 输入的指纹, 与 {@link GenerationCache#key(GenerationJob)} 一致
+ * 2. files: 上次生成的文件及其内容 hash
+ * 输入指纹相同且文件都未被修改或删除时, 输出是最新的, 不需要执行生成
+ */
+@Getter
+@Setter
+public class GenerationStamp {
+
+    public static final String FILE_NAME = ".openapi-generator" + File.separator + "maven-plugin.json";
+
+    private String inputs;
+
+    /**
+     * 相对输出目录的路径 -> 内容 hash
+     */
+    private Map<String, String> files = new TreeMap<>();
+
+    /**
+     * 记录生成结果, 只包含输出目录中的文件
+     */
+    public static GenerationStamp of(String inputs, File outputDir, List<File> generated) throws IOException {
+        GenerationStamp stamp = new GenerationStamp();
+        stamp.inputs = inputs;
+        Path output = outputDir.toPath().toAbsolutePath().normalize();
+        for (File file : generated) {
+            Path path = file.toPath().toAbsolutePath().normalize();
+            if (path.startsWith(output) && Files.isRegularFile(path)) {
+                stamp.files.put(output.relativize(path).toString(), hash(path));
+            }
+        }
+        return stamp;
+    }
+
+    /**
+     * 读取输出目录中的记录, 不存在或无法解析时返回 null
+     */
+    public static GenerationStamp read(String outputDir) {
+        File file = new File(outputDir, FILE_NAME);
+        if (!file.isFile()) {
+            return null;
+        }
+        try {
+            return Json.mapper().readValue(file, GenerationStamp.class);
+        } catch (IOException e) {
+            return null;
+        }
+    }
+
+    /**
+     * 先写临时文件再替换, 避免中断时留下不完整的记录
+     */
+    public void write(String outputDir) throws IOException {
+        Path target = Paths.get(outputDir, FILE_NAME);
+        Files.createDirectories(target.getParent());
+        Path tmp = target.resolveSibling(target.getFileName() + ".tmp");
+        Files.write(tmp, Json.pretty(this).getBytes(StandardCharsets.UTF_8));
+        Files.move(tmp, target, StandardCopyOption.REPLACE_EXISTING);
+    }
+
+    /**
+     * 输入指纹相同, 且记录的文件都存在并且内容未变化
+     */
+    public boolean isUpToDate(String inputs, String outputDir) {
+        if (null == inputs || !inputs.equals(this.inputs) || null == files || files.isEmpty()) {
+            return false;
+        }
+        Path output = Paths.get(outputDir);
+        try {
+            for (Map.Entry<String, String> entry : files.entrySet()) {
+                if (!entry.getValue().equals(hash(output.resolve(entry.getKey())))) {
+                    return false;
+                }
+            }
+        } catch (IOException e) {
+            // 文件被删除
+            return false;
+        }
+        return true;
+    }
+
+    private static String hash(Path path) throws IOException {
+        MessageDigest digest;
+        try {
+            digest = MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+        byte[] bytes = digest.digest(Files.readAllBytes(path));
+        StringBuilder sb = new StringBuilder(bytes.length * 2);
+        for (byte b : bytes) {
+            sb.append(Character.forDigit((b >> 4) & 0xF, 16)).append(Character.forDigit(b & 0xF, 16));
+        }
+        return sb.toString();
+    }
+}
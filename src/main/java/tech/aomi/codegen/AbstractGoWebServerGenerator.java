@@ -1,5 +1,7 @@
 package tech.aomi.codegen;
 
+import com.samskivert.mustache.Mustache;
+import io.swagger.v3.oas.models.OpenAPI;
 import io.swagger.v3.oas.models.media.Schema;
 import io.swagger.v3.oas.models.parameters.Parameter;
 import io.swagger.v3.oas.models.parameters.RequestBody;
@@ -7,6 +9,7 @@ import io.swagger.v3.oas.models.tags.Tag;
 import lombok.Getter;
 import lombok.Setter;
 import org.openapitools.codegen.*;
+import org.openapitools.codegen.api.TemplatingEngineAdapter;
 import org.openapitools.codegen.languages.AbstractGoCodegen;
 import org.openapitools.codegen.meta.features.*;
 import org.openapitools.codegen.model.ModelMap;
@@ -17,12 +20,18 @@ import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import java.io.File;
+import java.io.IOException;
 import java.nio.file.Path;
 import java.nio.file.Paths;
 import java.util.*;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.Future;
+import java.util.regex.Pattern;
 import java.util.stream.Collectors;
 
-public abstract class AbstractGoWebServerGenerator extends AbstractGoCodegen {
+public abstract class AbstractGoWebServerGenerator extends AbstractGoCodegen implements IncrementalCodegen, ReportingCodegen {
 
     private final Logger LOGGER = LoggerFactory.getLogger(AbstractGoWebServerGenerator.class);
 
@@ -39,6 +48,12 @@ public abstract class AbstractGoWebServerGenerator extends AbstractGoCodegen {
     public static final String PAGE_PACKAGE_ALIAS = "pagePackageAlias";
     public static final String ENABLE_OMITEMPTY = "enableOmitempty";
     public static final String RETURN_NIL_CONTENT_TYPES = "returnNilContentTypes";
+    public static final String LOW_MEMORY_MODE = "lowMemoryMode";
+    public static final String PRECOMPUTE_VALID_TAGS = "precomputeValidTags";
+    public static final String PARALLEL_MODEL_PROCESSING = "parallelModelProcessing";
+    public static final String MODEL_PROCESSING_THREADS = "modelProcessingThreads";
+
+    private static final Pattern PATH_PARAM_PATTERN = Pattern.compile("\\{(.*?)\\}");
 
     protected String apiVersion = "1.0.0";
 
@@ -105,6 +120,95 @@ public abstract class AbstractGoWebServerGenerator extends AbstractGoCodegen {
 
     protected Set<String> noCreateAliasPkgs = new HashSet<>();
 
+    /**
+     * 低内存模式
+     * 开启后属性/参数不再复制为 ExtendedCodegenProperty/ExtendedCodegenParameter,
+     * 模板需要的扩展字段由 GoExtrasCollector 在渲染时计算, 适用于超大的文档
+     */
+    @Getter
+    @Setter
+    protected Boolean lowMemoryMode = false;
+
+    /**
+     * 是否在 java 中直接生成校验 tag, 模板输出 validTag, 不再逐个条件展开 valid*.mustache.
+     * 自定义了 valid*.mustache 模板时默认关闭
+     */
+    @Getter
+    @Setter
+    protected Boolean precomputeValidTags = true;
+
+    /**
+     * 校验 tag 构建器, 由各生成器指定
+     */
+    protected ValidTagBuilder validTagBuilder;
+
+    /**
+     * 并行处理 model
+     * 开启后 postProcessModels 中的 go 相关处理延迟到 updateAllModels 中并行执行, 结果与串行一致
+     */
+    @Getter
+    @Setter
+    protected Boolean parallelModelProcessing = false;
+
+    /**
+     * 并行处理 model 的线程数, 默认为 cpu 核数
+     */
+    @Getter
+    @Setter
+    protected Integer modelProcessingThreads = Runtime.getRuntime().availableProcessors();
+
+    /**
+     * 低内存模式下 model 属性是否需要导入, 以属性对象本身为 key
+     */
+    protected final Map<CodegenProperty, Boolean> needImports = new IdentityHashMap<>();
+
+    /**
+     * 并行模式下等待处理的 model, 按 postProcessModels 的调用顺序保存
+     */
+    private final List<PendingModels> pendingModels = new ArrayList<>();
+
+    /**
+     * 并行处理期间延迟计算的 needImport, key 为 model 的 vars
+     */
+    private final Map<List<CodegenProperty>, Object> pendingNeedImports = Collections.synchronizedMap(new IdentityHashMap<>());
+
+    private volatile boolean processingInParallel = false;
+
+    /**
+     * 所有 model 的符号表, 在处理 operations 时基于 allModels 构建一次
+     */
+    protected ModelSymbolTable modelSymbolTable;
+
+    /**
+     * schema 与 tag 的索引, 在 preprocessOpenAPI 中构建
+     */
+    protected SpecIndex specIndex;
+
+    /**
+     * 别名、包名、导入路径等命名结果的缓存, 每次生成重新开始
+     */
+    protected final NamingCache namingCache = new NamingCache();
+
+    /**
+     * 各阶段耗时和计数, 开启 generationReport 后记录
+     */
+    @Getter
+    protected final GenerationReport generationReport = new GenerationReport();
+
+    /**
+     * 产生 JFR 事件, 见 {@link FlightRecorderEvents}
+     */
+    @Getter
+    @Setter
+    protected boolean jfrEvents = false;
+
+    /**
+     * 只生成选中的接口可达的 model, 见 {@link SchemaPruner}
+     */
+    @Getter
+    @Setter
+    protected boolean pruneUnusedSchemas = false;
+
     public AbstractGoWebServerGenerator() {
         super();
         this.apiNameSuffix = "";
@@ -160,6 +264,13 @@ public abstract class AbstractGoWebServerGenerator extends AbstractGoCodegen {
         cliOptions.add(CliOption.newBoolean(SUPPORT_VALID_MULTIPLE_OF, "go valid support MULTIPLE_OF"));
         cliOptions.add(CliOption.newBoolean(SUPPORT_VALID_REGEXP, "go valid support regexp"));
         cliOptions.add(CliOption.newBoolean(ENABLE_OMITEMPTY, "model tag add omitepty"));
+        cliOptions.add(CliOption.newBoolean(LOW_MEMORY_MODE, "低内存模式, 不复制属性和参数对象, 适用于超大的文档"));
+        cliOptions.add(CliOption.newBoolean(PRECOMPUTE_VALID_TAGS, "直接生成校验tag, 不使用valid*.mustache模板, 自定义了valid*.mustache时默认关闭"));
+        cliOptions.add(CliOption.newBoolean(PARALLEL_MODEL_PROCESSING, "并行处理model, 生成结果与串行一致"));
+        cliOptions.add(CliOption.newString(MODEL_PROCESSING_THREADS, "并行处理model的线程数, 默认为cpu核数"));
+        cliOptions.add(CliOption.newBoolean(GenerationReport.GENERATION_REPORT, "在输出目录的.openapi-generator/generation-report.json中写入各阶段耗时和计数"));
+        cliOptions.add(CliOption.newBoolean(FlightRecorderEvents.JFR_EVENTS, "产生JFR事件(operations、model处理及模板渲染), 用于JMC分析"));
+        cliOptions.add(CliOption.newBoolean(SchemaPruner.PRUNE_UNUSED_SCHEMAS, "只生成选中的接口($ref可达)用到的model, 未使用的schema不生成"));
 
 
         cliOptions.add(CliOption.newBoolean(CodegenConstants.ENUM_CLASS_PREFIX, CodegenConstants.ENUM_CLASS_PREFIX_DESC));
@@ -167,6 +278,7 @@ public abstract class AbstractGoWebServerGenerator extends AbstractGoCodegen {
 
     @Override
     public void processOpts() {
+        long start = System.nanoTime();
         super.processOpts();
 
         if (additionalProperties.containsKey(MODULE_NAME)) {
@@ -221,6 +333,30 @@ public abstract class AbstractGoWebServerGenerator extends AbstractGoCodegen {
             this.returnNilContentTypes.add("application/octet-stream");
             this.returnNilContentTypes.add("text/event-stream");
         }
+        if (additionalProperties.containsKey(LOW_MEMORY_MODE)) {
+            this.setLowMemoryMode(Boolean.parseBoolean(additionalProperties.get(LOW_MEMORY_MODE).toString()));
+        }
+        if (additionalProperties.containsKey(PRECOMPUTE_VALID_TAGS)) {
+            this.setPrecomputeValidTags(Boolean.parseBoolean(additionalProperties.get(PRECOMPUTE_VALID_TAGS).toString()));
+        } else if (hasCustomValidTemplates()) {
+            this.setPrecomputeValidTags(false);
+        }
+        additionalProperties.put(PRECOMPUTE_VALID_TAGS, this.precomputeValidTags);
+        if (additionalProperties.containsKey(PARALLEL_MODEL_PROCESSING)) {
+            this.setParallelModelProcessing(Boolean.parseBoolean(additionalProperties.get(PARALLEL_MODEL_PROCESSING).toString()));
+        }
+        if (additionalProperties.containsKey(MODEL_PROCESSING_THREADS)) {
+            this.setModelProcessingThreads(Math.max(1, Integer.parseInt(additionalProperties.get(MODEL_PROCESSING_THREADS).toString())));
+        }
+        if (additionalProperties.containsKey(GenerationReport.GENERATION_REPORT)) {
+            this.generationReport.setEnabled(Boolean.parseBoolean(additionalProperties.get(GenerationReport.GENERATION_REPORT).toString()));
+        }
+        if (additionalProperties.containsKey(FlightRecorderEvents.JFR_EVENTS)) {
+            this.setJfrEvents(Boolean.parseBoolean(additionalProperties.get(FlightRecorderEvents.JFR_EVENTS).toString()));
+        }
+        if (additionalProperties.containsKey(SchemaPruner.PRUNE_UNUSED_SCHEMAS)) {
+            this.setPruneUnusedSchemas(Boolean.parseBoolean(additionalProperties.get(SchemaPruner.PRUNE_UNUSED_SCHEMAS).toString()));
+        }
 
         /*
          * Additional Properties.  These values can be passed to the templates and
@@ -240,45 +376,98 @@ public abstract class AbstractGoWebServerGenerator extends AbstractGoCodegen {
             }
         }
 
+        generationReport.recordSince(GenerationReport.PROCESS_OPTS, start);
     }
 
 
+    /**
+     * 自定义模板目录中是否覆盖了 valid*.mustache
+     */
+    private boolean hasCustomValidTemplates() {
+        String dir = templateDir();
+        if (null == dir || dir.equals(embeddedTemplateDir())) {
+            return false;
+        }
+        String[] names = new File(dir).list((d, name) -> name.startsWith("valid") && name.endsWith(".mustache"));
+        return null != names && names.length > 0;
+    }
+
+    @Override
+    public void setTemplatingEngine(TemplatingEngineAdapter templatingEngine) {
+        // 使用进程内共享的已编译模板缓存
+        super.setTemplatingEngine(CachingMustacheEngineAdapter.wrap(templatingEngine, generationReport));
+    }
+
+    @Override
+    public Mustache.Compiler processCompiler(Mustache.Compiler compiler) {
+        // processCompiler 先于 processOpts 调用, 是否开启低内存模式由 GoExtrasCollector 取值时判断
+        return super.processCompiler(compiler).withCollector(new GoExtrasCollector(this));
+    }
+
+    @Override
+    public void preprocessOpenAPI(OpenAPI openAPI) {
+        if (pruneUnusedSchemas) {
+            generationReport.increment(GenerationReport.PRUNED_SCHEMAS, SchemaPruner.prune(openAPI, this));
+        }
+        super.preprocessOpenAPI(openAPI);
+        this.specIndex = new SpecIndex(openAPI, this::sanitizeTag);
+        this.namingCache.clear();
+        this.needImports.clear();
+        this.pendingModels.clear();
+        this.pendingNeedImports.clear();
+    }
+
+    /**
+     * 获取当前文档的索引, 文档发生变化时重新构建
+     */
+    protected SpecIndex getSpecIndex() {
+        if (null == this.specIndex || !this.specIndex.isBuiltFrom(this.openAPI)) {
+            this.specIndex = new SpecIndex(this.openAPI, this::sanitizeTag);
+            // model 目录依赖文档内容, 文档变化后命名结果需要重新计算
+            this.namingCache.clear();
+        }
+        return this.specIndex;
+    }
+
     @Override
     public OperationsMap postProcessOperationsWithModels(OperationsMap objs, List<ModelMap> allModels) {
+        long start = System.nanoTime();
+        FlightRecorderEvents.PostProcessOperations event = null;
+        if (jfrEvents) {
+            event = new FlightRecorderEvents.PostProcessOperations();
+            event.begin();
+        }
         objs = super.postProcessOperationsWithModels(objs, allModels);
 
         OperationMap operations = objs.getOperations();
         List<CodegenOperation> operationList = operations.getOperation();
+        ModelSymbolTable symbolTable = getModelSymbolTable(allModels);
 
         boolean needAddPage = false;
         boolean hasAnyParams = false;
         for (CodegenOperation op : operationList) {
             if (op.path != null) {
-                op.path = op.path.replaceAll("\\{(.*?)\\}", ":$1");
+                op.path = PATH_PARAM_PATTERN.matcher(op.path).replaceAll(":$1");
             }
             Optional.ofNullable(op.allParams).ifPresent(params -> params.forEach(p -> {
                 if (p.isBodyParam) {
-                    allModels.stream()
-                            .filter(m -> m.getModel().getClassname().equals(p.dataType))
-                            .findFirst()
-                            .ifPresent(m -> p.vendorExtensions.put("importAlias", m.getOrDefault("alias", "")));
+                    symbolTable.findByClassname(p.dataType)
+                            .ifPresent(m -> p.vendorExtensions.put("importAlias", m.alias));
                     if (importMapping().containsKey(p.dataType)) {
                         if (!noCreateAliasPkgs.contains(importMapping().get(p.dataType))) {
-                            p.vendorExtensions.put("importAlias", sanitizeName(importMapping().get(p.dataType), "_"));
+                            p.vendorExtensions.put("importAlias", toAlias(importMapping().get(p.dataType)));
                         }
                     }
                 }
             }));
 
             if (!op.returnTypeIsPrimitive) {
-                allModels.stream()
-                        .filter(m -> m.getModel().getClassname().equals(op.returnBaseType))
-                        .findFirst()
+                symbolTable.findByClassname(op.returnBaseType)
                         .ifPresent(m -> {
                             if (importMapping().containsKey(op.returnBaseType)) {
-                                op.vendorExtensions.put("returnImportAlias", sanitizeName(importMapping().get(op.returnBaseType), "_"));
+                                op.vendorExtensions.put("returnImportAlias", toAlias(importMapping().get(op.returnBaseType)));
                             } else {
-                                op.vendorExtensions.put("returnImportAlias", m.getOrDefault("alias", ""));
+                                op.vendorExtensions.put("returnImportAlias", m.alias);
                             }
                         });
             }
@@ -318,15 +507,15 @@ public abstract class AbstractGoWebServerGenerator extends AbstractGoCodegen {
             String classname = item.getOrDefault("classname", "");
             if (!noCreateAliasPkgs.contains(importMapping().get(classname))) {
                 if (importMapping().containsKey(classname)) {
-                    String alias = sanitizeName(path, "_");
+                    String alias = toAlias(path);
 
                     item.put("alias", alias);
                     item.put("isModelImport", "true");
                 }
             }
 
-            allModels.stream().filter(m -> m.getOrDefault("importPath", "").equals(path)).findFirst().ifPresent(m -> {
-                String alias = m.getOrDefault("alias", "").toString();
+            symbolTable.findByImportPath(path).ifPresent(m -> {
+                String alias = m.alias;
                 if (Paths.get(path).getFileName().toString().equals(alias)) {
                     alias = "";
                 }
@@ -340,13 +529,153 @@ public abstract class AbstractGoWebServerGenerator extends AbstractGoCodegen {
         objs.put("pagePackageAlias", this.pagePackageAlias);
         objs.put("hasAnyParams", hasAnyParams);
 
+        if (null != event && event.shouldCommit()) {
+            event.tag = operationsTag(operations);
+            event.operations = operationList.size();
+            event.commit();
+        }
+        if (generationReport.isEnabled()) {
+            generationReport.recordSince(GenerationReport.POST_PROCESS_OPERATIONS + operationsTag(operations), start);
+            generationReport.increment(GenerationReport.OPERATIONS, operationList.size());
+            generationReport.increment(GenerationReport.IMPORTS, imports.size());
+            for (CodegenOperation op : operationList) {
+                generationReport.increment(GenerationReport.CONDITIONS, countParameterConditions(op.allParams));
+            }
+        }
         return objs;
     }
 
+    /**
+     * operations 所属的 tag, 与 DefaultGenerator 分组使用的 tag 一致
+     */
+    private static String operationsTag(OperationMap operations) {
+        List<CodegenOperation> list = operations.getOperation();
+        return list.isEmpty() || null == list.get(0).baseName ? operations.getClassname() : list.get(0).baseName;
+    }
+
+    private long countParameterConditions(List<CodegenParameter> params) {
+        long count = 0;
+        for (CodegenParameter p : Optional.ofNullable(params).orElse(Collections.emptyList())) {
+            count += p instanceof ExtendedCodegenParameter ? ((ExtendedCodegenParameter) p).getConditions().size()
+                    : ExtendedCodegenParameter.conditionsOf(p, supportValidMultipleOf, supportValidRegexp).size();
+        }
+        return count;
+    }
+
+    private long countPropertyConditions(List<CodegenProperty> vars) {
+        long count = 0;
+        for (CodegenProperty p : vars) {
+            count += p instanceof ExtendedCodegenProperty ? ((ExtendedCodegenProperty) p).getConditions().size()
+                    : ExtendedCodegenProperty.conditionsOf(p, supportValidMultipleOf, supportValidRegexp).size();
+        }
+        return count;
+    }
+
+    /**
+     * 获取 allModels 对应的符号表, 同一次生成中的所有 operations 共用一份
+     */
+    protected ModelSymbolTable getModelSymbolTable(List<ModelMap> allModels) {
+        if (null == this.modelSymbolTable || !this.modelSymbolTable.isBuiltFrom(allModels)) {
+            this.modelSymbolTable = new ModelSymbolTable(allModels);
+        }
+        return this.modelSymbolTable;
+    }
+
     @Override
     public ModelsMap postProcessModels(ModelsMap objs) {
+        long start = System.nanoTime();
+        FlightRecorderEvents.PostProcessModels event = null;
+        if (jfrEvents) {
+            event = new FlightRecorderEvents.PostProcessModels();
+            event.begin();
+        }
         ModelsMap models = super.postProcessModels(objs);
-        return postProcessModels(objs, models);
+        if (Boolean.TRUE.equals(parallelModelProcessing)) {
+            // DefaultGenerator 不使用返回值, 处理结果直接写入 objs
+            pendingModels.add(new PendingModels(objs, models));
+        } else {
+            models = postProcessModels(objs, models);
+        }
+        generationReport.recordSince(GenerationReport.POST_PROCESS_MODELS, start);
+        if (null != event && event.shouldCommit()) {
+            event.model = objs.getModels().isEmpty() ? "" : objs.getModels().get(0).getModel().name;
+            event.models = objs.getModels().size();
+            event.commit();
+        }
+        return models;
+    }
+
+    @Override
+    public Map<String, ModelsMap> updateAllModels(Map<String, ModelsMap> objs) {
+        long start = System.nanoTime();
+        postProcessPendingModels();
+        Map<String, ModelsMap> result = super.updateAllModels(objs);
+        generationReport.recordSince(GenerationReport.UPDATE_ALL_MODELS, start);
+        return result;
+    }
+
+    /**
+     * 并行执行延迟的 postProcessModels.
+     * 每个 ModelsMap 的处理相互独立, 共享的命名缓存是线程安全的;
+     * 依赖处理顺序的部分(低内存模式的 needImport)在并行结束后按原顺序串行执行
+     */
+    protected void postProcessPendingModels() {
+        if (pendingModels.isEmpty()) {
+            return;
+        }
+        List<PendingModels> pending = new ArrayList<>(pendingModels);
+        pendingModels.clear();
+
+        // 并行前构建好索引, 避免在多个线程中重建
+        this.getSpecIndex();
+        this.isTypeMappingValue(null);
+
+        List<Callable<Void>> tasks = new ArrayList<>(pending.size());
+        for (PendingModels item : pending) {
+            tasks.add(() -> {
+                postProcessModels(item.objs, item.models);
+                // 串行模式下 DefaultGenerator 在 postProcessModels 之后合并 additionalProperties, 这里保持一致
+                item.models.putAll(additionalProperties);
+                return null;
+            });
+        }
+
+        FlightRecorderEvents.PostProcessModels event = null;
+        if (jfrEvents) {
+            event = new FlightRecorderEvents.PostProcessModels();
+            event.begin();
+        }
+        ForkJoinPool pool = new ForkJoinPool(modelProcessingThreads);
+        processingInParallel = true;
+        try {
+            for (Future<Void> future : pool.invokeAll(tasks)) {
+                future.get();
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new RuntimeException("Model processing interrupted", e);
+        } catch (ExecutionException e) {
+            throw new RuntimeException("Could not process models in parallel", e.getCause());
+        } finally {
+            processingInParallel = false;
+            pool.shutdown();
+        }
+
+        for (PendingModels item : pending) {
+            for (CodegenModel cmodel : item.codegenModels) {
+                Object importPath = pendingNeedImports.remove(cmodel.vars);
+                if (null != importPath) {
+                    updateNeedImports(cmodel.vars, importPath);
+                }
+            }
+        }
+        if (null != event && event.shouldCommit()) {
+            event.model = "";
+            event.models = pending.size();
+            event.parallel = true;
+            event.commit();
+        }
+        LOGGER.debug("processed {} models with {} threads", pending.size(), modelProcessingThreads);
     }
 
     public ModelsMap postProcessModels(ModelsMap objs, ModelsMap models) {
@@ -367,6 +696,9 @@ public abstract class AbstractGoWebServerGenerator extends AbstractGoCodegen {
 
             Object importPath = model.getOrDefault("importPath", "");
 
+            if (Boolean.TRUE.equals(lowMemoryMode)) {
+                updateNeedImports(cmodel.vars, importPath);
+            }
             cmodel.vars.forEach(var -> {
                 // 排除自己导入自己
                 if (!var.isPrimitiveType && var instanceof ExtendedCodegenProperty) {
@@ -401,9 +733,9 @@ public abstract class AbstractGoWebServerGenerator extends AbstractGoCodegen {
             String alias = "";
             if (path.startsWith(this.moduleName)) {
                 path = path.replace(this.moduleName, "");
-                alias = sanitizeName(path, "_");
+                alias = toAlias(path);
             } else {
-                alias = sanitizeName(path, "_");
+                alias = toAlias(path);
             }
             String defaultAlias = Paths.get(path).getFileName().toString();
             if (alias.equalsIgnoreCase(defaultAlias)) {
@@ -415,14 +747,96 @@ public abstract class AbstractGoWebServerGenerator extends AbstractGoCodegen {
         models.setModels(models.getModels().stream().filter(item -> {
             CodegenModel model = item.getModel();
             // 过滤掉typeMapping ,不在生成typeMapping中定义的model
-            if (typeMapping.containsValue(model.classname)) {
+            if (isTypeMappingValue(model.classname)) {
                 return false;
             }
             return true;
         }).collect(Collectors.toList()));
+
+        if (generationReport.isEnabled()) {
+            generationReport.increment(GenerationReport.MODELS, models.getModels().size());
+            generationReport.increment(GenerationReport.IMPORTS, models.getImportsOrEmpty().size());
+            models.getModels().forEach(m -> generationReport.increment(GenerationReport.CONDITIONS, countPropertyConditions(m.getModel().vars)));
+        }
         return models;
     }
 
+    /**
+     * 低内存模式下计算 model 属性是否需要导入, 与 ExtendedCodegenProperty.needImport 的计算方式一致.
+     * 同一个属性对象可能被多个 model 共用(来自 fromProperty 的缓存), 结果不同时复制一份
+     */
+    private void updateNeedImports(List<CodegenProperty> vars, Object importPath) {
+        if (processingInParallel) {
+            // 属性对象可能被多个 model 共用, 结果依赖处理顺序, 延迟到并行结束后执行
+            pendingNeedImports.put(vars, importPath);
+            return;
+        }
+        ListIterator<CodegenProperty> iterator = vars.listIterator();
+        while (iterator.hasNext()) {
+            CodegenProperty var = iterator.next();
+            if (var.isPrimitiveType) {
+                continue;
+            }
+            // 排除自己导入自己
+            boolean needImport = !importPath.equals(getPropertyImportPath(var));
+            if (var.isArray && !var.items.isPrimitiveType && needImport) {
+                // 如果需要导入的情况下判断是不是等于自己
+                needImport = !importPath.equals(getPropertyImportPath(var.items));
+            }
+
+            Boolean exists = needImports.putIfAbsent(var, needImport);
+            if (null != exists && exists != needImport) {
+                var = var.clone();
+                iterator.set(var);
+                needImports.put(var, needImport);
+            }
+        }
+    }
+
+    /**
+     * 属性类型对应的 model 名称, 基本类型或 typeMapping 中的类型返回 null
+     */
+    protected String getPropertyModelType(CodegenProperty cp) {
+        if (cp.isPrimitiveType) {
+            return null;
+        }
+        String type = cp.dataType;
+        if (cp.isArray) {
+            type = cp.items.dataType;
+        }
+        return this.isTypeMappingValue(type) ? null : type;
+    }
+
+    protected String getPropertyPackageName(CodegenProperty cp) {
+        String type = getPropertyModelType(cp);
+        return null == type ? null : this.getModelPkgName(type);
+    }
+
+    protected String getPropertyAlias(CodegenProperty cp) {
+        String type = getPropertyModelType(cp);
+        return null == type ? null : this.getModelAlias(type);
+    }
+
+    protected String getPropertyImportPath(CodegenProperty cp) {
+        String type = getPropertyModelType(cp);
+        return null == type ? null : this.toModelImport(type);
+    }
+
+    @Override
+    public void postProcess() {
+        LOGGER.debug("naming cache hits: {}, misses: {}", namingCache.getHits(), namingCache.getMisses());
+        if (generationReport.isEnabled()) {
+            generationReport.increment(GenerationReport.NAMING_CACHE_HITS, namingCache.getHits());
+            generationReport.increment(GenerationReport.NAMING_CACHE_MISSES, namingCache.getMisses());
+            try {
+                generationReport.write(this);
+            } catch (IOException e) {
+                LOGGER.warn("write generation report failed: {}", e.getMessage());
+            }
+        }
+        super.postProcess();
+    }
+
     /**
      * Configures the type of generator.
      *
@@ -439,7 +853,7 @@ public abstract class AbstractGoWebServerGenerator extends AbstractGoCodegen {
         String suffix = this.modelTemplateFiles().get(templateName);
 
         String dir = getModelFolder(modelName);
-        dir = dir.replaceAll("-", "_");
+        dir = dir.replace('-', '_');
 
         return Paths.get(this.modelFileFolder(), dir, this.toModelFilename(modelName) + suffix).toString();
 
@@ -448,61 +862,61 @@ public abstract class AbstractGoWebServerGenerator extends AbstractGoCodegen {
     @Override
     public CodegenParameter fromParameter(Parameter parameter, Set<String> imports) {
         CodegenParameter cp = super.fromParameter(parameter, imports);
-        ExtendedCodegenParameter ecp = new ExtendedCodegenParameter(cp);
-        ecp.supportValidRegexp = supportValidRegexp;
-        ecp.supportValidMultipleOf = supportValidMultipleOf;
-        ecp.timeFormat = timeFormat;
-        ecp.dateFormat = dateFormat;
-        ecp.datetimeFormat = datetimeFormat;
-        return ecp;
+        return toExtendedParameter(cp);
     }
 
     @Override
     public CodegenParameter fromFormProperty(String name, Schema propertySchema, Set<String> imports) {
         CodegenParameter cp = super.fromFormProperty(name, propertySchema, imports);
-        ExtendedCodegenParameter ecp = new ExtendedCodegenParameter(cp);
-        ecp.supportValidRegexp = supportValidRegexp;
-        ecp.supportValidMultipleOf = supportValidMultipleOf;
-        ecp.timeFormat = timeFormat;
-        ecp.dateFormat = dateFormat;
-        ecp.datetimeFormat = datetimeFormat;
-        return ecp;
+        return toExtendedParameter(cp);
     }
 
     @Override
     public CodegenParameter fromRequestBody(RequestBody body, Set<String> imports, String bodyParameterName) {
         CodegenParameter cp = super.fromRequestBody(body, imports, bodyParameterName);
-        ExtendedCodegenParameter ecp = new ExtendedCodegenParameter(cp);
-        ecp.supportValidRegexp = supportValidRegexp;
-        ecp.supportValidMultipleOf = supportValidMultipleOf;
-        ecp.timeFormat = timeFormat;
-        ecp.dateFormat = dateFormat;
-        ecp.datetimeFormat = datetimeFormat;
-        return ecp;
+        return toExtendedParameter(cp);
     }
 
-    public ExtendedCodegenProperty fromProperty(String name, Schema p, boolean required) {
+    @Override
+    public CodegenProperty fromProperty(String name, Schema p, boolean required) {
         CodegenProperty cp = super.fromProperty(name, p, required);
+        if (Boolean.TRUE.equals(lowMemoryMode)) {
+            return cp;
+        }
+
         ExtendedCodegenProperty ecp = new ExtendedCodegenProperty(cp, supportValidMultipleOf, supportValidRegexp);
+        ecp.validTagBuilder = validTagBuilder;
         ecp.datetimeFormat = datetimeFormat;
         ecp.dateFormat = dateFormat;
         ecp.timeFormat = timeFormat;
 
-        if (!cp.isPrimitiveType) {
-            String type = cp.dataType;
-            if (cp.isArray) {
-                type = cp.items.dataType;
-            }
-            if (!this.typeMapping.containsValue(type)) {
-                ecp.packageName = this.getModelPkgName(type);
-                ecp.alias = this.getModelAlias(type);
-                ecp.importPath = this.toModelImport(type);
-            }
+        String type = getPropertyModelType(cp);
+        if (null != type) {
+            ecp.packageName = this.getModelPkgName(type);
+            ecp.alias = this.getModelAlias(type);
+            ecp.importPath = this.toModelImport(type);
         }
 
         return ecp;
     }
 
+    /**
+     * 复制为 ExtendedCodegenParameter, 低内存模式下直接使用原对象
+     */
+    protected CodegenParameter toExtendedParameter(CodegenParameter cp) {
+        if (Boolean.TRUE.equals(lowMemoryMode)) {
+            return cp;
+        }
+        ExtendedCodegenParameter ecp = new ExtendedCodegenParameter(cp);
+        ecp.validTagBuilder = validTagBuilder;
+        ecp.supportValidRegexp = supportValidRegexp;
+        ecp.supportValidMultipleOf = supportValidMultipleOf;
+        ecp.timeFormat = timeFormat;
+        ecp.dateFormat = dateFormat;
+        ecp.datetimeFormat = datetimeFormat;
+        return ecp;
+    }
+
     @Override
     public String toModelName(String name) {
         if (typeMapping.containsKey(name)) {
@@ -520,8 +934,24 @@ public abstract class AbstractGoWebServerGenerator extends AbstractGoCodegen {
         if (importMapping.containsKey(name)) {
             return importMapping.get(name);
         }
-        String dir = getModelFolder(name);
-        return Paths.get(this.moduleName, this.modelPackage().replace('.', File.separatorChar), dir).toString().replaceAll("-", "_");
+        return namingCache.get(NamingCache.MODEL_IMPORT, name, key -> {
+            String dir = getModelFolder(key);
+            return Paths.get(this.moduleName, this.modelPackage().replace('.', File.separatorChar), dir).toString().replace('-', '_');
+        });
+    }
+
+    /**
+     * 根据导入路径生成包的别名
+     */
+    protected String toAlias(String path) {
+        return namingCache.get(NamingCache.ALIAS, path, key -> sanitizeName(key, "_"));
+    }
+
+    /**
+     * 判断 type 是否是 typeMapping 中映射后的类型
+     */
+    protected boolean isTypeMappingValue(String type) {
+        return namingCache.isTypeMappingValue(this.typeMapping, type);
     }
 
     protected String getFirstTagName(String tag) {
@@ -539,13 +969,7 @@ public abstract class AbstractGoWebServerGenerator extends AbstractGoCodegen {
     }
 
     protected Tag findTag(String tag) {
-        if (null == this.openAPI.getTags()) {
-            return null;
-        }
-        return this.openAPI.getTags().stream().filter(item -> {
-            String name = this.sanitizeTag(item.getName());
-            return tag.equals(name);
-        }).findFirst().orElse(null);
+        return this.getSpecIndex().findTag(tag);
     }
 
 
@@ -554,14 +978,14 @@ public abstract class AbstractGoWebServerGenerator extends AbstractGoCodegen {
         String tag = this.getFirstTagName(classname);
 
         Path api = Paths.get(this.moduleName, this.apiPackage, tag);
-        String goApiAlias = sanitizeName(Paths.get(this.apiPackage, tag).toString(), "_");
-        String goApiInterfaceFullPackage = api.toString().replaceAll("-", "_");
+        String goApiAlias = toAlias(Paths.get(this.apiPackage, tag).toString());
+        String goApiInterfaceFullPackage = api.toString().replace('-', '_');
 
-        String goHandlerAlias = sanitizeName(Paths.get(this.handlerPackage, tag).toString(), "_");
-        String goHandlerFullPackage = Paths.get(this.moduleName, this.handlerPackage, tag).toString().replaceAll("-", "_");
+        String goHandlerAlias = toAlias(Paths.get(this.handlerPackage, tag).toString());
+        String goHandlerFullPackage = Paths.get(this.moduleName, this.handlerPackage, tag).toString().replace('-', '_');
 
-        String goControllerAlias = sanitizeName(Paths.get(this.controllerPackage, tag).toString(), "_");
-        String goControllerFullPackage = Paths.get(this.moduleName, this.controllerPackage, tag).toString().replaceAll("-", "_");
+        String goControllerAlias = toAlias(Paths.get(this.controllerPackage, tag).toString());
+        String goControllerFullPackage = Paths.get(this.moduleName, this.controllerPackage, tag).toString().replace('-', '_');
 
         String goPackage = api.getName(api.getNameCount() - 1).toString();
         if (goPackage.isEmpty()) {
@@ -581,38 +1005,37 @@ public abstract class AbstractGoWebServerGenerator extends AbstractGoCodegen {
     }
 
     private String getModelPkgName(String name) {
-        String folder = this.getModelFolder(name);
-        Path path = Paths.get(this.modelPackage().replace('.', File.separatorChar), folder);
-        return path.getName(path.getNameCount() - 1).toString().replaceAll("-", "_");
+        return namingCache.get(NamingCache.MODEL_PKG_NAME, name, key -> getFolderPkgName(this.getModelFolder(key)));
     }
 
     private String getModelPkgName(Map<String, Object> vendorExtensions) {
-        String folder = getModelFolder(vendorExtensions);
-        Path path = Paths.get(this.modelPackage().replace('.', File.separatorChar), folder);
-        return path.getName(path.getNameCount() - 1).toString().replaceAll("-", "_");
+        return getFolderPkgName(getModelFolder(vendorExtensions));
+    }
+
+    private String getFolderPkgName(String folder) {
+        return namingCache.get(NamingCache.FOLDER_PKG_NAME, folder, key -> {
+            Path path = Paths.get(this.modelPackage().replace('.', File.separatorChar), key);
+            return path.getName(path.getNameCount() - 1).toString().replace('-', '_');
+        });
     }
 
     private String getModelAlias(String name) {
-        String folder = getModelFolder(name);
-        Path path = Paths.get(this.modelPackage().replace('.', File.separatorChar), folder);
-        return sanitizeName(path.toString(), "_");
+        return namingCache.get(NamingCache.MODEL_ALIAS, name, key -> getFolderAlias(getModelFolder(key)));
     }
 
     private String getModelAlias(Map<String, Object> vendorExtensions) {
-        String folder = getModelFolder(vendorExtensions);
-        Path path = Paths.get(this.modelPackage().replace('.', File.separatorChar), folder);
-        return sanitizeName(path.toString(), "_");
+        return getFolderAlias(getModelFolder(vendorExtensions));
+    }
+
+    private String getFolderAlias(String folder) {
+        return namingCache.get(NamingCache.FOLDER_ALIAS, folder, key -> {
+            Path path = Paths.get(this.modelPackage().replace('.', File.separatorChar), key);
+            return toAlias(path.toString());
+        });
     }
 
     protected String getModelFolder(String name) {
-        Schema<?> schema = this.openAPI.getComponents()
-                .getSchemas()
-                .keySet()
-                .stream()
-                .filter(name::equalsIgnoreCase)
-                .map(key -> this.openAPI.getComponents().getSchemas().get(key))
-                .findFirst()
-                .orElse(null);
+        Schema<?> schema = this.getSpecIndex().findSchema(name);
         if (null == schema) {
             return "";
         }
@@ -628,4 +1051,21 @@ public abstract class AbstractGoWebServerGenerator extends AbstractGoCodegen {
         return folder.replace(this.modelPackage, "");
     }
 
+    /**
+     * 等待并行处理的 model
+     */
+    private static final class PendingModels {
+        private final ModelsMap objs;
+        private final ModelsMap models;
+        /**
+         * 过滤 typeMapping 之前的全部 model
+         */
+        private final List<CodegenModel> codegenModels;
+
+        private PendingModels(ModelsMap objs, ModelsMap models) {
+            this.objs = objs;
+            this.models = models;
+            this.codegenModels = models.getModels().stream().map(ModelMap::getModel).collect(Collectors.toList());
+        }
+    }
 }
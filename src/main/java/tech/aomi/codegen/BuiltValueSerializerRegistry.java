@@ -0,0 +1,65 @@
+package tech.aomi.codegen;
+
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+import java.util.function.Function;
+
+/**
+ * built_value 自定义 serializer 注册表
+ * MyDartDioClientCodegen 处理 model 属性、接口参数和返回值时登记需要的 serializer 及其 import, 插入时去重,
+ * 生成 supporting files 时一次性写入模板数据(serializers.mustache).
+ * 同一次生成中每个类型的 import 只解析一次
+ */
+public class BuiltValueSerializerRegistry {
+
+    public static final String SERIALIZERS = "builtValueSerializers";
+
+    public static final String SERIALIZER_IMPORTS = "builtValueSerializerImports";
+
+    private final Set<MyDartDioClientCodegen.BuiltValueSerializer> serializers = new HashSet<>();
+
+    private final Set<String> imports = new HashSet<>();
+
+    /**
+     * 类型 -> 解析后的 import
+     */
+    private final Map<String, Set<String>> resolvedImports = new HashMap<>();
+
+    private final Function<String, Set<String>> importResolver;
+
+    /**
+     * @param importResolver 将类型解析为 import, 与 model 的 import 规则一致
+     */
+    public BuiltValueSerializerRegistry(Function<String, Set<String>> importResolver) {
+        this.importResolver = importResolver;
+    }
+
+    boolean addSerializer(MyDartDioClientCodegen.BuiltValueSerializer serializer) {
+        return serializers.add(serializer);
+    }
+
+    public void addImport(String type) {
+        imports.addAll(resolvedImports.computeIfAbsent(type, importResolver));
+    }
+
+    /**
+     * 写入模板数据, 没有登记的内容不写入
+     */
+    public void publish(Map<String, Object> bundle) {
+        if (!serializers.isEmpty()) {
+            bundle.put(SERIALIZERS, Collections.unmodifiableSet(serializers));
+        }
+        if (!imports.isEmpty()) {
+            bundle.put(SERIALIZER_IMPORTS, Collections.unmodifiableSet(imports));
+        }
+    }
+
+    public void clear() {
+        serializers.clear();
+        imports.clear();
+        resolvedImports.clear();
+    }
+}
@@ -0,0 +1,353 @@
+package tech.aomi.codegen;
+
+import com.samskivert.mustache.DefaultCollector;
+import com.samskivert.mustache.Mustache;
+import com.samskivert.mustache.Template;
+import lombok.Setter;
+import org.openapitools.codegen.api.TemplatingEngineAdapter;
+import org.openapitools.codegen.api.TemplatingExecutor;
+import org.openapitools.codegen.templating.MustacheEngineAdapter;
+import org.openapitools.codegen.templating.TemplateNotFoundException;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.io.Reader;
+import java.io.StringReader;
+import java.io.StringWriter;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.WeakHashMap;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * 使用 {@link CompiledTemplateCache} 的 mustache 模板引擎
+ * 同一个 JVM 中多次生成时, 模板和 partial 只解析一次.
+ * <p>
+ * 缓存的模板不绑定某一次生成的 Compiler: collector、formatter 和 escaper
+ * 在渲染时转发给当前生成的 Compiler(例如带有 {@link GoExtrasCollector} 的 Compiler), 输出与不使用缓存时一致.
+ * partial 在放入缓存前全部加载, partial 的路径和内容是缓存 key 的一部分, 见 {@link CompiledTemplateCache}.
+ * 使用自定义 collector 时不使用缓存. 生成器不能通过 processCompiler 修改分隔符
+ */
+public class CachingMustacheEngineAdapter extends MustacheEngineAdapter {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(CachingMustacheEngineAdapter.class);
+
+    private static final String PARENT_CONTEXT = "MUSTACHE_PARENT_CONTEXT";
+
+    private static final String EXTENSION = ".mustache";
+
+    /**
+     * 当前线程正在渲染的模板对应的生成
+     */
+    private static final ThreadLocal<RenderContext> CURRENT = new ThreadLocal<>();
+
+    /**
+     * 每次生成(TemplateManager)读取过的模板, 同一次生成中每个模板只读取一次
+     */
+    private static final Map<TemplatingExecutor, Map<String, TemplateSource>> SOURCES =
+            Collections.synchronizedMap(new WeakHashMap<>());
+
+    private final CompiledTemplateCache cache;
+
+    /**
+     * 记录每个模板的渲染耗时和缓存命中次数, 可以为 null
+     */
+    @Setter
+    private GenerationReport report;
+
+    public CachingMustacheEngineAdapter() {
+        this(CompiledTemplateCache.getInstance());
+    }
+
+    public CachingMustacheEngineAdapter(CompiledTemplateCache cache) {
+        this.cache = cache;
+    }
+
+    /**
+     * 默认的 mustache 引擎替换为使用缓存的引擎, 其它引擎保持不变
+     */
+    public static TemplatingEngineAdapter wrap(TemplatingEngineAdapter engine, GenerationReport report) {
+        if (null == engine || engine.getClass() != MustacheEngineAdapter.class) {
+            return engine;
+        }
+        CachingMustacheEngineAdapter caching = new CachingMustacheEngineAdapter();
+        caching.setCompiler(((MustacheEngineAdapter) engine).getCompiler());
+        caching.setReport(report);
+        return caching;
+    }
+
+    @Override
+    public String compileTemplate(TemplatingExecutor executor, Map<String, Object> bundle, String templateFile) throws IOException {
+        long start = System.nanoTime();
+        try {
+            return render(executor, bundle, templateFile);
+        } finally {
+            if (null != report) {
+                report.recordSince(GenerationReport.RENDER + templateFile, start);
+            }
+        }
+    }
+
+    private String render(TemplatingExecutor executor, Map<String, Object> bundle, String templateFile) throws IOException {
+        Mustache.Compiler compiler = getCompiler();
+        if (!cache.isEnabled() || !isCacheable(compiler)) {
+            return super.compileTemplate(executor, bundle, templateFile);
+        }
+        RenderContext context = new RenderContext(compiler, executor, SOURCES.computeIfAbsent(executor, k -> new ConcurrentHashMap<>()));
+        RenderContext previous = CURRENT.get();
+        CURRENT.set(context);
+        try {
+            Template tmpl = getTemplate(context, templateFile);
+            StringWriter out = new StringWriter();
+            Object parent = bundle.get(PARENT_CONTEXT);
+            if (parent == null) {
+                LOGGER.warn("{} not found. super.processOpts needs to be called in processOpts()", PARENT_CONTEXT);
+                parent = new Object();
+            }
+            tmpl.execute(bundle, parent, out);
+            return out.toString();
+        } finally {
+            if (null == previous) {
+                CURRENT.remove();
+            } else {
+                CURRENT.set(previous);
+            }
+        }
+    }
+
+    private Template getTemplate(RenderContext context, String templateFile) {
+        TemplateSource source = context.source(templateFile);
+        String key = settingsKey(context.compiler) + '\n' + source.key;
+        CompiledTemplateCache.Entry entry = cache.get(key, e -> isValid(context, e));
+        if (null == entry) {
+            CompiledTemplateCache.Entry created = new CompiledTemplateCache.Entry();
+            Template template = sharedCompiler(context.compiler, created).compile(source.content);
+            // 放入缓存前加载全部 partial, 其它生成使用该模板时不会加载到自己模板目录中的 partial
+            template.visit(new PartialResolver(context, created));
+            created.setTemplate(template);
+            cache.put(key, created);
+            entry = created;
+        } else if (null != report) {
+            report.increment(GenerationReport.TEMPLATE_CACHE_HITS, 1);
+        }
+        return entry.getTemplate();
+    }
+
+    /**
+     * 模板引用的全部 partial 的路径和内容与当前生成一致
+     */
+    private static boolean isValid(RenderContext context, CompiledTemplateCache.Entry entry) {
+        for (Map.Entry<String, String> partial : entry.getPartials().entrySet()) {
+            if (!partialKey(context, partial.getKey()).equals(partial.getValue())) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * partial 的路径及内容 hash, 不存在时为空字符串
+     */
+    private static String partialKey(RenderContext context, String name) {
+        try {
+            return context.source(name + EXTENSION).key;
+        } catch (RuntimeException e) {
+            return "";
+        }
+    }
+
+    /**
+     * 只缓存默认 Compiler 及 GoExtrasCollector 的模板
+     */
+    private static boolean isCacheable(Mustache.Compiler compiler) {
+        return compiler.collector.getClass() == DefaultCollector.class || compiler.collector instanceof GoExtrasCollector;
+    }
+
+    /**
+     * 影响模板解析结果的编译参数
+     */
+    private static String settingsKey(Mustache.Compiler compiler) {
+        return (compiler.standardsMode ? "s" : "-")
+                + (compiler.strictSections ? "t" : "-")
+                + (compiler.emptyStringIsFalse ? "e" : "-")
+                + (compiler.zeroIsFalse ? "z" : "-");
+    }
+
+    /**
+     * 缓存的模板使用的 Compiler, 渲染相关的配置都转发给当前生成的 Compiler
+     */
+    private Mustache.Compiler sharedCompiler(Mustache.Compiler compiler, CompiledTemplateCache.Entry entry) {
+        return Mustache.compiler()
+                .standardsMode(compiler.standardsMode)
+                .strictSections(compiler.strictSections)
+                .emptyStringIsFalse(compiler.emptyStringIsFalse)
+                .zeroIsFalse(compiler.zeroIsFalse)
+                .withFormatter(value -> current().compiler.formatter.format(value))
+                .withEscaper(raw -> current().compiler.escaper.escape(raw))
+                .withCollector(new DispatchingCollector())
+                .withLoader(name -> loadPartial(entry, name))
+                .defaultValue("");
+    }
+
+    /**
+     * 只返回放入缓存前已加载的 partial, 不读取当前生成的模板目录
+     */
+    private Reader loadPartial(CompiledTemplateCache.Entry entry, String name) {
+        String content = entry.getPartialContent(name);
+        if (null == content) {
+            LOGGER.error("Failed to read full template {}", name + EXTENSION);
+            throw new TemplateNotFoundException(name);
+        }
+        return new StringReader(content);
+    }
+
+    private static RenderContext current() {
+        RenderContext context = CURRENT.get();
+        if (null == context) {
+            throw new IllegalStateException("cached template rendered outside of compileTemplate");
+        }
+        return context;
+    }
+
+    /**
+     * 一次 compileTemplate 调用的上下文
+     */
+    private static final class RenderContext {
+        private final Mustache.Compiler compiler;
+        private final TemplatingExecutor executor;
+        private final Map<String, TemplateSource> sources;
+
+        private RenderContext(Mustache.Compiler compiler, TemplatingExecutor executor, Map<String, TemplateSource> sources) {
+            this.compiler = compiler;
+            this.executor = executor;
+            this.sources = sources;
+        }
+
+        private TemplateSource source(String name) {
+            TemplateSource source = sources.get(name);
+            if (null == source) {
+                String location = executor.getFullTemplatePath(name).toString();
+                source = new TemplateSource(location, executor.getFullTemplateContents(name));
+                sources.put(name, source);
+            }
+            return source;
+        }
+    }
+
+    /**
+     * 遍历模板, 依次加载引用的 partial 及 partial 引用的 partial
+     * 同名的 partial 只加载一次, 其余位置(包括递归引用)渲染时从 entry 中读取相同的内容.
+     * 不存在的 partial 记录为空, 与不使用缓存时一致, 渲染到该 partial 时才失败
+     */
+    private static final class PartialResolver implements Mustache.Visitor {
+        private final RenderContext context;
+        private final CompiledTemplateCache.Entry entry;
+
+        private PartialResolver(RenderContext context, CompiledTemplateCache.Entry entry) {
+            this.context = context;
+            this.entry = entry;
+        }
+
+        @Override
+        public void visitText(String text) {
+        }
+
+        @Override
+        public void visitVariable(String name) {
+        }
+
+        @Override
+        public boolean visitInclude(String name) {
+            if (entry.getPartials().containsKey(name)) {
+                return false;
+            }
+            TemplateSource source;
+            try {
+                source = context.source(name + EXTENSION);
+            } catch (RuntimeException e) {
+                entry.addPartial(name, "", null);
+                return false;
+            }
+            entry.addPartial(name, source.key, source.content);
+            return true;
+        }
+
+        @Override
+        public boolean visitSection(String name) {
+            return true;
+        }
+
+        @Override
+        public boolean visitInvertedSection(String name) {
+            return true;
+        }
+    }
+
+    /**
+     * 模板内容及其路径 + 内容 hash
+     */
+    private static final class TemplateSource {
+        private final String key;
+        private final String content;
+
+        private TemplateSource(String location, String content) {
+            this.key = location + '#' + IncrementalManifest.hash(content);
+            this.content = content;
+        }
+    }
+
+    /**
+     * DefaultCollector 能解析的变量直接缓存在模板中, 其它变量(例如 GoExtrasCollector 的扩展字段)交给当前生成的 collector
+     */
+    private static final class DispatchingCollector implements Mustache.Collector {
+
+        private static final DefaultCollector BASE = new DefaultCollector();
+
+        @Override
+        public Iterator<?> toIterator(Object value) {
+            return current().compiler.collector.toIterator(value);
+        }
+
+        @Override
+        public Mustache.VariableFetcher createFetcher(Object ctx, String name) {
+            Mustache.VariableFetcher fetcher = BASE.createFetcher(ctx, name);
+            return null != fetcher ? fetcher : new DispatchingFetcher();
+        }
+
+        @Override
+        public <K, V> Map<K, V> createFetcherCache() {
+            return new ConcurrentHashMap<>();
+        }
+    }
+
+    private static final class DispatchingFetcher implements Mustache.VariableFetcher {
+
+        /**
+         * 最近一次使用的 collector 创建的 fetcher
+         */
+        private volatile Resolved resolved;
+
+        @Override
+        public Object get(Object ctx, String name) throws Exception {
+            Mustache.Collector collector = current().compiler.collector;
+            Resolved r = this.resolved;
+            if (null == r || r.collector != collector) {
+                r = new Resolved(collector, collector.createFetcher(ctx, name));
+                this.resolved = r;
+            }
+            return null == r.fetcher ? Template.NO_FETCHER_FOUND : r.fetcher.get(ctx, name);
+        }
+    }
+
+    private static final class Resolved {
+        private final Mustache.Collector collector;
+        private final Mustache.VariableFetcher fetcher;
+
+        private Resolved(Mustache.Collector collector, Mustache.VariableFetcher fetcher) {
+            this.collector = collector;
+            this.fetcher = fetcher;
+        }
+    }
+}
@@ -0,0 +1,225 @@
+package tech.aomi.codegen;
+
+import com.samskivert.mustache.Template;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Predicate;
+
+/**
+ * 进程内共享的已编译模板缓存
+ * key 为编译参数 + 模板路径 + 模板内容 hash, 再加上模板引用的全部 partial(包括 partial 引用的 partial)的路径和内容 hash, 按最近使用淘汰.
+ * 模板在放入缓存前已加载全部 partial, 缓存中的模板不会再读取任何生成的模板目录.
+ * 同一个模板的 partial 被用户模板覆盖时, 覆盖和未覆盖的两个版本同时缓存, 查找时选择 partial 与当前生成一致的版本
+ */
+public class CompiledTemplateCache {
+
+    /**
+     * 默认最多缓存的模板数量
+     */
+    public static final int DEFAULT_MAXIMUM_SIZE = 512;
+
+    private static final CompiledTemplateCache INSTANCE = new CompiledTemplateCache(DEFAULT_MAXIMUM_SIZE);
+
+    /**
+     * 完整的 key(模板 + partial) -> 模板
+     */
+    private final Map<String, Entry> entries = new LinkedHashMap<>(64, 0.75f, true);
+
+    /**
+     * 模板的 key -> 各版本完整的 key
+     */
+    private final Map<String, Set<String>> variants = new HashMap<>();
+
+    /**
+     * 最多缓存的模板数量, 为 0 时不缓存
+     */
+    private int maximumSize;
+
+    private final LongAdder hits = new LongAdder();
+
+    private final LongAdder misses = new LongAdder();
+
+    private final LongAdder evictions = new LongAdder();
+
+    /**
+     * 模板已缓存, 但 partial 与当前生成都不一致的次数
+     */
+    private final LongAdder invalidations = new LongAdder();
+
+    public CompiledTemplateCache(int maximumSize) {
+        this.maximumSize = Math.max(0, maximumSize);
+    }
+
+    /**
+     * 进程内共享的缓存
+     */
+    public static CompiledTemplateCache getInstance() {
+        return INSTANCE;
+    }
+
+    public synchronized int getMaximumSize() {
+        return maximumSize;
+    }
+
+    /**
+     * 修改最多缓存的模板数量, 超出的部分立即淘汰
+     */
+    public synchronized void setMaximumSize(int maximumSize) {
+        this.maximumSize = Math.max(0, maximumSize);
+        evict();
+    }
+
+    public synchronized boolean isEnabled() {
+        return maximumSize > 0;
+    }
+
+    /**
+     * 获取 partial 与当前生成一致(valid 校验通过)的模板, 没有时返回 null
+     */
+    public Entry get(String key, Predicate<Entry> valid) {
+        List<Entry> candidates = new ArrayList<>();
+        synchronized (this) {
+            for (String fullKey : variants.getOrDefault(key, Collections.emptySet())) {
+                candidates.add(entries.get(fullKey));
+            }
+        }
+        for (Entry candidate : candidates) {
+            if (valid.test(candidate)) {
+                synchronized (this) {
+                    // 更新最近使用的顺序
+                    entries.get(candidate.fullKey);
+                }
+                hits.increment();
+                return candidate;
+            }
+        }
+        if (!candidates.isEmpty()) {
+            invalidations.increment();
+        }
+        misses.increment();
+        return null;
+    }
+
+    /**
+     * 放入已加载全部 partial 的模板, 之后不能再修改 entry
+     */
+    public synchronized void put(String key, Entry entry) {
+        entry.key = key;
+        entry.fullKey = key + '\n' + IncrementalManifest.hash(entry.getPartials().toString());
+        entries.put(entry.fullKey, entry);
+        variants.computeIfAbsent(key, k -> new LinkedHashSet<>()).add(entry.fullKey);
+        evict();
+    }
+
+    private void evict() {
+        while (entries.size() > maximumSize) {
+            Entry eldest = entries.values().iterator().next();
+            entries.remove(eldest.fullKey);
+            Set<String> keys = variants.get(eldest.key);
+            keys.remove(eldest.fullKey);
+            if (keys.isEmpty()) {
+                variants.remove(eldest.key);
+            }
+            evictions.increment();
+        }
+    }
+
+    public synchronized int size() {
+        return entries.size();
+    }
+
+    public long getHits() {
+        return hits.sum();
+    }
+
+    public long getMisses() {
+        return misses.sum();
+    }
+
+    public long getEvictions() {
+        return evictions.sum();
+    }
+
+    public long getInvalidations() {
+        return invalidations.sum();
+    }
+
+    /**
+     * 清空缓存及统计
+     */
+    public synchronized void clear() {
+        entries.clear();
+        variants.clear();
+        hits.reset();
+        misses.reset();
+        evictions.reset();
+        invalidations.reset();
+    }
+
+    @Override
+    public String toString() {
+        return "CompiledTemplateCache{size=" + size() + ", hits=" + getHits() + ", misses=" + getMisses()
+                + ", evictions=" + getEvictions() + ", invalidations=" + getInvalidations() + "}";
+    }
+
+    /**
+     * 一个已编译的模板及其引用的全部 partial
+     */
+    public static class Entry {
+
+        private volatile Template template;
+
+        /**
+         * partial 名称 -> 路径及内容 hash, 按名称排序
+         */
+        private final Map<String, String> partials = Collections.synchronizedMap(new TreeMap<>());
+
+        /**
+         * partial 名称 -> 内容, 放入缓存后延迟编译的 partial(例如递归引用)从这里读取
+         */
+        private final Map<String, String> partialContents = new ConcurrentHashMap<>();
+
+        private String key;
+
+        private String fullKey;
+
+        public Template getTemplate() {
+            return template;
+        }
+
+        void setTemplate(Template template) {
+            this.template = template;
+        }
+
+        public Map<String, String> getPartials() {
+            return partials;
+        }
+
+        /**
+         * 记录加载的 partial, 不存在的 partial 的 key 为空字符串, content 为 null
+         */
+        void addPartial(String name, String key, String content) {
+            partials.put(name, key);
+            if (null != content) {
+                partialContents.put(name, content);
+            }
+        }
+
+        /**
+         * 已加载的 partial 内容, 没有时返回 null
+         */
+        String getPartialContent(String name) {
+            return partialContents.get(name);
+        }
+    }
+}
@@ -1,14 +1,67 @@
 package tech.aomi.codegen;
 
-import java.util.HashMap;
+import com.google.common.collect.Interner;
+import com.google.common.collect.Interners;
+
+import java.util.AbstractMap;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
 import java.util.Map;
+import java.util.Set;
+
+/**
+ * 校验条件
+ * 模板中通过 c.xxx 访问, 例如: {{#c.maxLength}}max={{c.maxLength}}{{/c.maxLength}}
+ * 不可变对象, 相同的条件(例如所有的 required, 所有的 maxLength=64)共用同一个实例.
+ * 使用弱引用的常量池, 不再被生成结果引用的条件可以回收, 守护进程等长期运行的 JVM 中不会随处理的文档增长
+ */
+public final class Condition extends AbstractMap<String, Object> {
+
+    private static final String KEY = "c";
+
+    private static final Interner<Condition> CONDITIONS = Interners.newWeakInterner();
 
-public class Condition extends HashMap<String, Object> {
+    private static final Interner<List<Map<String, Object>>> CONDITION_LISTS = Interners.newWeakInterner();
+
+    private final Map<String, Object> c;
+
+    private final Set<Entry<String, Object>> entrySet;
+
+    private Condition(String key, Object value) {
+        this.c = Collections.singletonMap(key, value);
+        this.entrySet = Collections.singleton(new SimpleImmutableEntry<>(KEY, this.c));
+    }
 
-    public Condition(String key, Object value) {
-        Map<String, Object> c = new HashMap<>();
-        c.put(key, value);
-        this.put("c", c);
+    /**
+     * 获取条件实例
+     */
+    public static Condition of(String key, Object value) {
+        return CONDITIONS.intern(new Condition(key, value));
     }
 
-}
\ No newline at end of file
+    /**
+     * 获取不可变的条件列表, 相同的条件列表共用同一个实例
+     */
+    public static List<Map<String, Object>> listOf(List<Map<String, Object>> conditions) {
+        if (conditions.isEmpty()) {
+            return Collections.emptyList();
+        }
+        return CONDITION_LISTS.intern(Collections.unmodifiableList(new ArrayList<>(conditions)));
+    }
+
+    @Override
+    public Object get(Object key) {
+        return KEY.equals(key) ? c : null;
+    }
+
+    @Override
+    public boolean containsKey(Object key) {
+        return KEY.equals(key);
+    }
+
+    @Override
+    public Set<Entry<String, Object>> entrySet() {
+        return entrySet;
+    }
+}
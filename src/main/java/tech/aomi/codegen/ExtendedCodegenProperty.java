@@ -1,6 +1,5 @@
 package tech.aomi.codegen;
 
-import lombok.Getter;
 import org.openapitools.codegen.CodegenProperty;
 
 import java.util.ArrayList;
@@ -23,10 +22,20 @@ public class ExtendedCodegenProperty extends CodegenProperty {
     public String dateFormat;
     public String timeFormat;
 
-    @Getter
-    private List<Map<String, Object>> conditions;
+    /**
+     * 校验 tag 构建器, 由生成器设置
+     */
+    public ValidTagBuilder validTagBuilder;
 
-    public boolean hasConditions;
+    /**
+     * 校验条件生成的 tag 文本, 模板首次使用时计算
+     */
+    private String validTag;
+
+    /**
+     * 校验条件, 模板首次使用时计算
+     */
+    private List<Map<String, Object>> conditions;
 
     /**
      * 该属性的导入完整路径
@@ -138,98 +147,116 @@ public class ExtendedCodegenProperty extends CodegenProperty {
         this.xmlNamespace = cp.xmlNamespace;
         this.isXmlWrapped = cp.isXmlWrapped;
         this.setFormat(cp.getFormat());
-
-        this.initConditions();
     }
 
     public boolean isIpv4() {
-        return isNotEmpty(this.getFormat()) && "ipv4".equalsIgnoreCase(this.getFormat());
+        return isFormat(this.getFormat(), "ipv4");
     }
 
     public boolean isIpv6() {
-        return isNotEmpty(this.getFormat()) && "ipv6".equalsIgnoreCase(this.getFormat());
+        return isFormat(this.getFormat(), "ipv6");
     }
 
     public boolean isHostname() {
-        return isNotEmpty(this.getFormat()) && "hostname".equalsIgnoreCase(this.getFormat());
+        return isFormat(this.getFormat(), "hostname");
     }
 
     public boolean isTime() {
-        return isNotEmpty(this.getFormat()) && "time".equalsIgnoreCase(this.getFormat());
+        return isFormat(this.getFormat(), "time");
     }
 
     public boolean isAnyTime() {
         return this.isDateTime || this.isDate || this.isTime();
     }
 
-    private void initConditions() {
+    public List<Map<String, Object>> getConditions() {
+        if (null == this.conditions) {
+            this.conditions = conditionsOf(this, supportValidMultipleOf, supportValidRegexp);
+        }
+        return this.conditions;
+    }
+
+    public boolean getHasConditions() {
+        return !this.getConditions().isEmpty();
+    }
+
+    public String getValidTag() {
+        if (null == this.validTag) {
+            this.validTag = null == validTagBuilder ? "" : validTagBuilder.build(this.getConditions(), this._enum, this.isReadOnly, this.minimum, this.maximum);
+        }
+        return this.validTag;
+    }
+
+    /**
+     * 计算属性的校验条件
+     */
+    static List<Map<String, Object>> conditionsOf(CodegenProperty p, boolean supportValidMultipleOf, boolean supportValidRegexp) {
         List<Map<String, Object>> conditions = new ArrayList<>();
 
-        if (isNotEmpty(this.min)) {
-            conditions.add(new Condition("min", this.min));
+        if (isNotEmpty(p.min)) {
+            conditions.add(Condition.of("min", p.min));
         }
-        if (isNotEmpty(this.max)) {
-            conditions.add(new Condition("max", this.max));
+        if (isNotEmpty(p.max)) {
+            conditions.add(Condition.of("max", p.max));
         }
-        if (null != this.maxLength) {
-            conditions.add(new Condition("maxLength", this.maxLength));
+        if (null != p.maxLength) {
+            conditions.add(Condition.of("maxLength", p.maxLength));
         }
-        if (null != this.minLength) {
-            conditions.add(new Condition("minLength", this.minLength));
+        if (null != p.minLength) {
+            conditions.add(Condition.of("minLength", p.minLength));
         }
-        if (supportValidRegexp && isNotEmpty(this.pattern)) {
-            conditions.add(new Condition("pattern", this.pattern));
+        if (supportValidRegexp && isNotEmpty(p.pattern)) {
+            conditions.add(Condition.of("pattern", p.pattern));
         }
 
-        if (isNotEmpty(this.minimum)) {
-            conditions.add(new Condition("minimum", this.minimum));
+        if (isNotEmpty(p.minimum)) {
+            conditions.add(Condition.of("minimum", p.minimum));
         }
-        if (isNotEmpty(this.maximum)) {
-            conditions.add(new Condition("maximum", this.maximum));
+        if (isNotEmpty(p.maximum)) {
+            conditions.add(Condition.of("maximum", p.maximum));
         }
-        if (this.supportValidMultipleOf && null != this.multipleOf) {
-            conditions.add(new Condition("multipleOf", this.multipleOf));
+        if (supportValidMultipleOf && null != p.multipleOf) {
+            conditions.add(Condition.of("multipleOf", p.multipleOf));
         }
-        if (null != this.maxItems) {
-            conditions.add(new Condition("maxItems", this.maxItems));
+        if (null != p.maxItems) {
+            conditions.add(Condition.of("maxItems", p.maxItems));
         }
-        if (null != this.minItems) {
-            conditions.add(new Condition("minItems", this.minItems));
+        if (null != p.minItems) {
+            conditions.add(Condition.of("minItems", p.minItems));
         }
-        if (this.getUniqueItems()) {
-            conditions.add(new Condition("uniqueItems", this.getUniqueItems()));
+        if (p.getUniqueItems()) {
+            conditions.add(Condition.of("uniqueItems", p.getUniqueItems()));
         }
-        if (this.isEnum) {
-            conditions.add(new Condition("isEnum", true));
+        if (p.isEnum) {
+            conditions.add(Condition.of("isEnum", true));
         }
-        if (this.required && !isReadOnly) {
-            conditions.add(new Condition("required", true));
+        if (p.required && !p.isReadOnly) {
+            conditions.add(Condition.of("required", true));
         }
-        if (this.isEmail) {
-            conditions.add(new Condition("isEmail", true));
+        if (p.isEmail) {
+            conditions.add(Condition.of("isEmail", true));
         }
-        if (this.isUri) {
-            conditions.add(new Condition("isUri", true));
+        if (p.isUri) {
+            conditions.add(Condition.of("isUri", true));
         }
-        if (this.isPassword) {
-            conditions.add(new Condition("isPassword", true));
+        if (p.isUuid) {
+            conditions.add(Condition.of("isUuid", true));
         }
-        if (this.isUuid) {
-            conditions.add(new Condition("isUuid", true));
+        if (isFormat(p.getFormat(), "ipv4")) {
+            conditions.add(Condition.of("isIpv4", true));
         }
-        if (this.isIpv4()) {
-            conditions.add(new Condition("isIpv4", true));
+        if (isFormat(p.getFormat(), "ipv6")) {
+            conditions.add(Condition.of("isIpv6", true));
         }
-        if (this.isIpv6()) {
-            conditions.add(new Condition("isIpv6", true));
-        }
-        if (this.isHostname()) {
-            conditions.add(new Condition("isHostname", true));
+        if (isFormat(p.getFormat(), "hostname")) {
+            conditions.add(Condition.of("isHostname", true));
         }
 
-        this.conditions = conditions;
-        this.hasConditions = !conditions.isEmpty();
+        return Condition.listOf(conditions);
+    }
 
+    static boolean isFormat(String format, String expected) {
+        return isNotEmpty(format) && expected.equalsIgnoreCase(format);
     }
 
     static boolean isNotEmpty(String str) {
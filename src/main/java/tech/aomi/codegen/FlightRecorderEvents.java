@@ -0,0 +1,83 @@
+package tech.aomi.codegen;
+
+import jdk.jfr.Category;
+import jdk.jfr.DataAmount;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import org.openapitools.codegen.CodegenConfig;
+
+/**
+ * 生成过程中的 JFR 事件, 在 JMC 中可以与同一线程的 CPU、内存分配采样对照查看.
+ * 生成器开启 jfrEvents 后才创建事件, 未开启时只有一次布尔判断.
+ * <p>
+ * java -XX:StartFlightRecording=filename=codegen.jfr ... -p jfrEvents=true
+ */
+public final class FlightRecorderEvents {
+
+    public static final String JFR_EVENTS = "jfrEvents";
+
+    private static final String CATEGORY = "OpenAPI Generator";
+
+    private FlightRecorderEvents() {
+    }
+
+    /**
+     * 生成器是否开启了 JFR 事件
+     */
+    public static boolean isEnabled(CodegenConfig config) {
+        return config instanceof ReportingCodegen && ((ReportingCodegen) config).isJfrEvents();
+    }
+
+    @Name("tech.aomi.codegen.PostProcessOperations")
+    @Label("Post Process Operations")
+    @Description("一次 postProcessOperationsWithModels 调用, 对应一个 tag")
+    @Category(CATEGORY)
+    public static class PostProcessOperations extends Event {
+
+        @Label("Tag")
+        public String tag;
+
+        @Label("Operations")
+        public int operations;
+    }
+
+    @Name("tech.aomi.codegen.PostProcessModels")
+    @Label("Post Process Models")
+    @Description("一次 postProcessModels 调用或一批并行处理的 model")
+    @Category(CATEGORY)
+    public static class PostProcessModels extends Event {
+
+        @Label("Model")
+        @Description("第一个 model 的名称, 批量处理时为空")
+        public String model;
+
+        @Label("Models")
+        public int models;
+
+        @Label("Parallel")
+        public boolean parallel;
+    }
+
+    @Name("tech.aomi.codegen.RenderTemplate")
+    @Label("Render Template")
+    @Description("渲染并写入一个文件")
+    @Category(CATEGORY)
+    public static class RenderTemplate extends Event {
+
+        @Label("Template")
+        public String template;
+
+        @Label("File")
+        public String file;
+
+        @Label("Category")
+        @Description("models, apis, supportingFiles 等")
+        public String category;
+
+        @Label("Bytes")
+        @DataAmount
+        public long bytes;
+    }
+}
@@ -0,0 +1,329 @@
+package tech.aomi.codegen;
+
+import io.swagger.v3.core.util.Json;
+import io.swagger.v3.core.util.Yaml;
+import lombok.Getter;
+import lombok.Setter;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * 批量生成, 在同一个 JVM 中用线程池并发执行清单中的多个任务
+ * 每个任务使用独立的生成器实例; 已编译的模板({@link CompiledTemplateCache})、加载的类和 JIT 结果在任务之间共享.
+ * 本地 spec 较大的任务先执行, 减少最后只剩一个大任务在运行的时间.
+ * 开启 shareSpec 后, 使用同一个 spec 的多个任务只解析一次, 见 {@link SharedSpec}.
+ * <p>
+ * 清单为 YAML 或 JSON, jobs 的字段与 {@link GenerationJob} 一致, 相对路径以清单所在目录为基础:
+ * <pre>
+ * concurrency: 4
+ * shareSpec: true
+ * jobs:
+ *   - generatorName: my-go-gin-server
+ *     inputSpec: user/api.yaml
+ *     outputDir: user
+ *     additionalProperties:
+ *       moduleName: github.com/xx/user
+ *   - generatorName: go-zero-server-api
+ *     inputSpec: order/api.yaml
+ *     outputDir: order
+ * </pre>
+ * 执行: java -cp openapi-generator-cli.jar:am-openapi-generator.jar tech.aomi.codegen.GenerationBatch batch.yaml [--jobs N] [--share-spec] [--report report.json]
+ */
+public class GenerationBatch {
+
+    private final int concurrency;
+
+    /**
+     * inputSpec 相同的任务共用一次解析的结果
+     */
+    @Getter
+    @Setter
+    private boolean shareSpec;
+
+    public GenerationBatch(int concurrency) {
+        this.concurrency = Math.max(1, concurrency);
+    }
+
+    /**
+     * 执行全部任务, 单个任务失败不影响其他任务. 结果与 jobs 的顺序一致
+     */
+    public Summary run(List<GenerationJob> jobs) throws InterruptedException {
+        List<Integer> order = new ArrayList<>();
+        for (int i = 0; i < jobs.size(); i++) {
+            order.add(i);
+        }
+        order.sort(Comparator.comparingLong((Integer i) -> specSize(jobs.get(i))).reversed());
+
+        Map<String, SpecHolder> sharedSpecs = shareSpec ? sharedSpecs(jobs) : Collections.emptyMap();
+
+        long start = System.nanoTime();
+        AtomicInteger count = new AtomicInteger();
+        ExecutorService executor = Executors.newFixedThreadPool(Math.min(concurrency, Math.max(1, jobs.size())), r -> {
+            Thread thread = new Thread(r, "codegen-batch-" + count.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+        List<Future<Result>> futures = new ArrayList<>(jobs.size());
+        for (int i = 0; i < jobs.size(); i++) {
+            futures.add(null);
+        }
+        try {
+            for (int i : order) {
+                GenerationJob job = jobs.get(i);
+                SpecHolder spec = sharedSpecs.get(job.getInputSpec());
+                futures.set(i, executor.submit(() -> execute(job, spec)));
+            }
+            Summary summary = new Summary();
+            for (Future<Result> future : futures) {
+                try {
+                    summary.getJobs().add(future.get());
+                } catch (ExecutionException e) {
+                    // execute 只会抛出 Error, 例如 OutOfMemoryError
+                    if (e.getCause() instanceof Error) {
+                        throw (Error) e.getCause();
+                    }
+                    throw new IllegalStateException(e.getCause());
+                }
+            }
+            summary.setMillis((System.nanoTime() - start) / 1_000_000);
+            summary.setSharedSpecs(sharedSpecs.size());
+            summary.setSharedParseMillis(sharedSpecs.values().stream().mapToLong(SpecHolder::parseMillis).sum());
+            summary.setTemplateCache(CompiledTemplateCache.getInstance().toString());
+            return summary;
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    /**
+     * 被多个任务使用的 spec
+     */
+    private static Map<String, SpecHolder> sharedSpecs(List<GenerationJob> jobs) {
+        Map<String, Integer> counts = new HashMap<>();
+        for (GenerationJob job : jobs) {
+            if (null != job.getInputSpec()) {
+                counts.merge(job.getInputSpec(), 1, Integer::sum);
+            }
+        }
+        Map<String, SpecHolder> result = new HashMap<>();
+        counts.forEach((spec, n) -> {
+            if (n > 1) {
+                result.put(spec, new SpecHolder(spec));
+            }
+        });
+        return result;
+    }
+
+    private static Result execute(GenerationJob job, SpecHolder spec) {
+        Result result = new Result();
+        result.setGeneratorName(job.getGeneratorName());
+        result.setInputSpec(job.getInputSpec());
+        result.setOutputDir(job.getOutputDir());
+        long start = System.nanoTime();
+        try {
+            if (null == job.getGeneratorName() || null == job.getInputSpec() || null == job.getOutputDir()) {
+                throw new IllegalArgumentException("generatorName, inputSpec and outputDir are required");
+            }
+            result.setFiles(job.run(null == spec ? null : spec.get()).size());
+            result.setOk(true);
+        } catch (RuntimeException e) {
+            // 只保留第一行, 例如找不到生成器时异常信息会列出全部生成器
+            result.setError(String.valueOf(e).split("\\R", 2)[0]);
+        }
+        result.setMillis((System.nanoTime() - start) / 1_000_000);
+        return result;
+    }
+
+    private static long specSize(GenerationJob job) {
+        if (null == job.getInputSpec() || job.getInputSpec().contains("://")) {
+            return 0;
+        }
+        return new File(job.getInputSpec()).length();
+    }
+
+    /**
+     * 读取清单, 相对路径转换为以清单所在目录为基础的绝对路径
+     */
+    public static Manifest readManifest(File file) throws IOException {
+        Manifest manifest = Yaml.mapper().readValue(file, Manifest.class);
+        File base = file.getAbsoluteFile().getParentFile();
+        if (null != manifest.getJobs()) {
+            for (GenerationJob job : manifest.getJobs()) {
+                if (null != job.getInputSpec() && !job.getInputSpec().contains("://")) {
+                    job.setInputSpec(resolve(base, job.getInputSpec()));
+                }
+                job.setOutputDir(resolve(base, job.getOutputDir()));
+                job.setTemplateDir(resolve(base, job.getTemplateDir()));
+                job.setCacheDir(resolve(base, job.getCacheDir()));
+            }
+        }
+        return manifest;
+    }
+
+    private static String resolve(File base, String path) {
+        if (null == path || path.isEmpty()) {
+            return path;
+        }
+        File file = new File(path);
+        return (file.isAbsolute() ? file : new File(base, path)).getAbsolutePath();
+    }
+
+    public static void main(String[] args) throws Exception {
+        String manifestFile = null;
+        Integer concurrency = null;
+        String report = null;
+        boolean shareSpec = false;
+        for (int i = 0; i < args.length; i++) {
+            switch (args[i]) {
+                case "--jobs":
+                    concurrency = Integer.parseInt(args[++i]);
+                    break;
+                case "--share-spec":
+                    shareSpec = true;
+                    break;
+                case "--report":
+                    report = args[++i];
+                    break;
+                default:
+                    if (null != manifestFile || args[i].startsWith("-")) {
+                        System.err.println("usage: GenerationBatch batch.yaml [--jobs N] [--share-spec] [--report report.json]");
+                        System.exit(2);
+                    }
+                    manifestFile = args[i];
+            }
+        }
+        if (null == manifestFile) {
+            System.err.println("usage: GenerationBatch batch.yaml [--jobs N] [--share-spec] [--report report.json]");
+            System.exit(2);
+        }
+        Manifest manifest = readManifest(new File(manifestFile));
+        if (null == concurrency) {
+            concurrency = manifest.getConcurrency() > 0 ? manifest.getConcurrency() : Runtime.getRuntime().availableProcessors();
+        }
+        List<GenerationJob> jobs = null == manifest.getJobs() ? new ArrayList<>() : manifest.getJobs();
+
+        GenerationBatch batch = new GenerationBatch(concurrency);
+        batch.setShareSpec(shareSpec || manifest.isShareSpec());
+        Summary summary = batch.run(jobs);
+        for (Result result : summary.getJobs()) {
+            if (result.isOk()) {
+                System.out.printf("ok     %-20s %s, %d files in %d ms%n",
+                        result.getGeneratorName(), result.getOutputDir(), result.getFiles(), result.getMillis());
+            } else {
+                System.out.printf("failed %-20s %s in %d ms: %s%n",
+                        result.getGeneratorName(), result.getOutputDir(), result.getMillis(), result.getError());
+            }
+        }
+        System.out.printf("%d jobs, %d failed, %d ms (%d ms in jobs, concurrency %d, %d shared specs parsed in %d ms), %s%n",
+                summary.getJobs().size(), summary.getFailed(), summary.getMillis(), summary.getJobMillis(),
+                concurrency, summary.getSharedSpecs(), summary.getSharedParseMillis(), summary.getTemplateCache());
+        if (null != report) {
+            Json.pretty().writeValue(new File(report), summary);
+        }
+        if (summary.getFailed() > 0) {
+            System.exit(1);
+        }
+    }
+
+    @Getter
+    @Setter
+    public static class Manifest {
+        /**
+         * 同时执行的任务数, 命令行的 --jobs 优先, 都没有时使用 CPU 核数
+         */
+        private int concurrency;
+        private boolean shareSpec;
+        private List<GenerationJob> jobs;
+    }
+
+    @Getter
+    @Setter
+    public static class Result {
+        private String generatorName;
+        private String inputSpec;
+        private String outputDir;
+        private boolean ok;
+        private String error;
+        /**
+         * 生成的文件数量
+         */
+        private int files;
+        private long millis;
+    }
+
+    @Getter
+    @Setter
+    public static class Summary {
+        private List<Result> jobs = new ArrayList<>();
+        /**
+         * 整批任务的耗时
+         */
+        private long millis;
+        /**
+         * 只解析一次并共享的 spec 数量
+         */
+        private int sharedSpecs;
+        /**
+         * 共享 spec 的解析耗时之和, 每个 spec 只解析一次
+         */
+        private long sharedParseMillis;
+        private String templateCache;
+
+        public int getFailed() {
+            return (int) jobs.stream().filter(r -> !r.isOk()).count();
+        }
+
+        /**
+         * 各任务耗时之和, 与 millis 的比值即为实际的并行度
+         */
+        public long getJobMillis() {
+            return jobs.stream().mapToLong(Result::getMillis).sum();
+        }
+    }
+
+    /**
+     * 第一个任务使用时解析, 之后的任务直接使用结果. 解析失败时所有使用该 spec 的任务都失败
+     */
+    private static final class SpecHolder {
+        private final String inputSpec;
+        private SharedSpec spec;
+        private RuntimeException error;
+
+        private SpecHolder(String inputSpec) {
+            this.inputSpec = inputSpec;
+        }
+
+        private synchronized SharedSpec get() {
+            if (null == spec && null == error) {
+                try {
+                    spec = SharedSpec.parse(inputSpec);
+                } catch (RuntimeException e) {
+                    error = e;
+                }
+            }
+            if (null != error) {
+                throw error;
+            }
+            return spec;
+        }
+
+        /**
+         * 没有任务使用或解析失败时为 0
+         */
+        private synchronized long parseMillis() {
+            return null == spec ? 0 : spec.getParseMillis();
+        }
+    }
+}
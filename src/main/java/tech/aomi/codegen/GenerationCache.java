@@ -0,0 +1,384 @@
+package tech.aomi.codegen;
+
+import io.swagger.v3.core.util.Json;
+import org.openapitools.codegen.utils.ImplementationVersion;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.FileAlreadyExistsException;
+import java.nio.file.FileSystems;
+import java.nio.file.Files;
+import java.nio.file.LinkOption;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.security.MessageDigest;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Properties;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+/**
+ * 本地磁盘上按内容寻址的生成结果缓存, 多个 CI 任务可以共用同一个目录
+ * key: spec 及其 $ref 引用的本地文件、生成器名称、additionalProperties、globalProperties、自定义模板、
+ * 输出目录中的 .openapi-generator-ignore、插件和 openapi-generator 的版本.
+ * value: 生成的文件, 保存在 entries/{key}/files 中, 路径与输出目录一致.
+ * <p>
+ * 1. 发布: 先写入 tmp 下的临时目录, 完整后原子重命名为 entries/{key}, 其他任务不会读到不完整的结果
+ * 2. 命中: 将文件复制(或硬链接)到输出目录, 不执行生成, 并更新 entry.properties 的修改时间作为最近使用时间.
+ * 条目中的文件是只读的, 硬链接到输出目录的文件在下次生成前由 {@link #unlinkShared(Path)} 替换为独立的副本
+ * 3. 淘汰: 发布后总大小超过上限时, 按最近使用时间删除最旧的条目. 删除前先重命名到 tmp, 正在读取的任务会失败并回退为正常生成
+ * <p>
+ * spec 使用 http(s) 地址或引用远程文件时, 远程内容不参与 key 的计算
+ */
+public class GenerationCache {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(GenerationCache.class);
+
+    public static final long DEFAULT_MAX_BYTES = 1024L * 1024 * 1024;
+
+    private static final String ENTRIES = "entries";
+
+    private static final String TMP = "tmp";
+
+    private static final String FILES = "files";
+
+    private static final String ENTRY_FILE = "entry.properties";
+
+    private static final String IGNORE_FILE = ".openapi-generator-ignore";
+
+    private static final String METADATA_DIR = ".openapi-generator";
+
+    private static final String FILES_LIST = "FILES";
+
+    /**
+     * 超过该时间的临时目录认为是中断的发布, 淘汰时一并删除
+     */
+    private static final long STALE_TMP_MILLIS = TimeUnit.HOURS.toMillis(1);
+
+    private final Path entries;
+
+    private final Path tmp;
+
+    private final long maxBytes;
+
+    public GenerationCache(Path root, long maxBytes) {
+        this.entries = root.resolve(ENTRIES);
+        this.tmp = root.resolve(TMP);
+        this.maxBytes = maxBytes;
+    }
+
+    /**
+     * 任务的缓存 key, 也用作输入的指纹. spec 不是本地文件时返回 null, 不使用缓存
+     */
+    public static String key(GenerationJob job) throws IOException {
+        Path spec = Paths.get(job.getInputSpec()).toAbsolutePath().normalize();
+        if (!Files.isRegularFile(spec)) {
+            return null;
+        }
+        MessageDigest digest = IncrementalManifest.newDigest();
+        update(digest, "generator " + job.getGeneratorName());
+        // 使用相对 spec 的路径, 不同目录中检出的相同文件得到相同的 key
+        for (Path file : SpecWatcher.referencedFiles(spec)) {
+            update(digest, "spec " + spec.getParent().relativize(file));
+            if (Files.isRegularFile(file)) {
+                digest.update(Files.readAllBytes(file));
+            }
+        }
+        update(digest, "additionalProperties " + json(job.getAdditionalProperties()));
+        update(digest, "globalProperties " + json(job.getGlobalProperties()));
+        if (null != job.getTemplateDir() && !job.getTemplateDir().isEmpty()) {
+            Path templateDir = Paths.get(job.getTemplateDir());
+            if (Files.isDirectory(templateDir)) {
+                try (Stream<Path> stream = Files.walk(templateDir)) {
+                    for (Path path : stream.filter(Files::isRegularFile).sorted().collect(Collectors.toList())) {
+                        update(digest, "template " + templateDir.relativize(path));
+                        digest.update(Files.readAllBytes(path));
+                    }
+                }
+            } else {
+                update(digest, "template " + job.getTemplateDir());
+            }
+        }
+        Path ignore = Paths.get(job.getOutputDir(), IGNORE_FILE);
+        if (Files.isRegularFile(ignore)) {
+            update(digest, "ignore");
+            digest.update(Files.readAllBytes(ignore));
+        }
+        update(digest, "plugin " + IncrementalManifest.pluginVersion());
+        update(digest, "openapi-generator " + ImplementationVersion.read());
+        return IncrementalManifest.toHex(digest.digest());
+    }
+
+    /**
+     * 命中时将文件写入输出目录并返回, 未命中或读取失败时返回 null
+     *
+     * @param link 使用硬链接代替复制, 输出目录中的文件与缓存共用且只读, 修改前需要先调用 {@link #unlinkShared(Path)}
+     */
+    public List<File> restore(String key, File outputDir, boolean link) {
+        Path entry = entries.resolve(key);
+        Path files = entry.resolve(FILES);
+        if (!Files.isDirectory(files)) {
+            return null;
+        }
+        List<File> result = new ArrayList<>();
+        try (Stream<Path> stream = Files.walk(files)) {
+            for (Path source : stream.filter(Files::isRegularFile).collect(Collectors.toList())) {
+                Path relative = files.relativize(source);
+                Path target = outputDir.toPath().resolve(relative.toString());
+                // 与 DefaultGenerator 一致, 已存在的 .openapi-generator-ignore 不覆盖
+                if (relative.toString().equals(IGNORE_FILE) && Files.exists(target)) {
+                    continue;
+                }
+                Files.createDirectories(target.getParent());
+                materialize(source, target, link);
+                result.add(target.toFile());
+            }
+            entry.resolve(ENTRY_FILE).toFile().setLastModified(System.currentTimeMillis());
+        } catch (IOException | RuntimeException e) {
+            // 条目可能正在被淘汰
+            LOGGER.warn("restore generation cache {} failed, generate instead: {}", key, e.getMessage());
+            return null;
+        }
+        LOGGER.info("generation cache hit {}, {} files restored to {}", key, result.size(), outputDir);
+        return result;
+    }
+
+    /**
+     * 保存生成的文件, 已存在相同 key 时不覆盖. 失败时只记录日志, 不影响生成结果
+     */
+    public void publish(String key, File outputDir, List<File> generated) {
+        Path output = outputDir.toPath().toAbsolutePath().normalize();
+        Path staging = tmp.resolve(key + "-" + UUID.randomUUID());
+        try {
+            long size = 0;
+            int count = 0;
+            for (File file : generated) {
+                Path source = file.toPath().toAbsolutePath().normalize();
+                if (!source.startsWith(output) || !Files.isRegularFile(source)) {
+                    continue;
+                }
+                Path target = staging.resolve(FILES).resolve(output.relativize(source).toString());
+                if (Files.exists(target)) {
+                    continue;
+                }
+                Files.createDirectories(target.getParent());
+                Files.copy(source, target);
+                // 硬链接恢复时与输出目录共用, 只读可以让直接修改输出文件的工具报错, 而不是改掉缓存
+                target.toFile().setWritable(false, false);
+                size += Files.size(target);
+                count++;
+            }
+            Properties properties = new Properties();
+            properties.setProperty("size", String.valueOf(size));
+            properties.setProperty("files", String.valueOf(count));
+            Files.createDirectories(staging);
+            try (OutputStream out = Files.newOutputStream(staging.resolve(ENTRY_FILE))) {
+                properties.store(out, null);
+            }
+
+            Files.createDirectories(entries);
+            try {
+                Files.move(staging, entries.resolve(key), StandardCopyOption.ATOMIC_MOVE);
+            } catch (FileAlreadyExistsException e) {
+                // 其他任务已经发布了相同的结果
+                delete(staging);
+                return;
+            } catch (IOException e) {
+                // 部分系统目标目录已存在时抛出 DirectoryNotEmptyException 等异常
+                if (Files.isDirectory(entries.resolve(key))) {
+                    delete(staging);
+                    return;
+                }
+                throw e;
+            }
+            LOGGER.info("generation cache {} published, {} files, {} bytes", key, count, size);
+        } catch (IOException e) {
+            LOGGER.warn("publish generation cache {} failed: {}", key, e.getMessage());
+            delete(staging);
+            return;
+        }
+        evict();
+    }
+
+    /**
+     * 总大小超过上限时按最近使用时间从旧到新删除条目
+     */
+    public void evict() {
+        List<Entry> list = new ArrayList<>();
+        try (Stream<Path> stream = Files.list(entries)) {
+            for (Path path : stream.collect(Collectors.toList())) {
+                Entry entry = Entry.read(path);
+                if (null != entry) {
+                    list.add(entry);
+                }
+            }
+        } catch (NoSuchFileException e) {
+            return;
+        } catch (IOException e) {
+            LOGGER.warn("list generation cache failed: {}", e.getMessage());
+            return;
+        }
+        long total = list.stream().mapToLong(e -> e.size).sum();
+        list.sort(Comparator.comparingLong(e -> e.lastUsed));
+        for (Entry entry : list) {
+            if (total <= maxBytes) {
+                break;
+            }
+            Path trash = tmp.resolve("evicted-" + entry.path.getFileName() + "-" + UUID.randomUUID());
+            try {
+                Files.createDirectories(tmp);
+                Files.move(entry.path, trash, StandardCopyOption.ATOMIC_MOVE);
+            } catch (IOException e) {
+                // 其他任务已经删除
+                continue;
+            }
+            delete(trash);
+            total -= entry.size;
+            LOGGER.info("generation cache {} evicted, {} bytes", entry.path.getFileName(), entry.size);
+        }
+        deleteStaleTmp();
+    }
+
+    private void deleteStaleTmp() {
+        long deadline = System.currentTimeMillis() - STALE_TMP_MILLIS;
+        try (Stream<Path> stream = Files.list(tmp)) {
+            for (Path path : stream.collect(Collectors.toList())) {
+                if (path.toFile().lastModified() < deadline) {
+                    delete(path);
+                }
+            }
+        } catch (IOException e) {
+            // tmp 不存在或正在被其他任务清理
+        }
+    }
+
+    private static void materialize(Path source, Path target, boolean link) throws IOException {
+        if (link) {
+            try {
+                Files.deleteIfExists(target);
+                Files.createLink(target, source);
+                return;
+            } catch (IOException | UnsupportedOperationException e) {
+                // 跨文件系统等情况, 回退为复制
+            }
+        }
+        Files.copy(source, target, StandardCopyOption.REPLACE_EXISTING);
+        // 复制会保留条目文件的只读权限
+        target.toFile().setWritable(true, true);
+    }
+
+    /**
+     * 将输出目录中有多个硬链接的文件替换为独立的副本, 返回替换的数量.
+     * 上游写文件时原地截断, 不替换会把新的内容写入缓存条目, 之后命中旧 key 时恢复出错误的文件.
+     * 只检查 .openapi-generator 目录、.openapi-generator-ignore 和 FILES 中列出的文件, 没有 FILES 时检查整个目录
+     */
+    public static int unlinkShared(Path outputDir) throws IOException {
+        if (!Files.isDirectory(outputDir) || !FileSystems.getDefault().supportedFileAttributeViews().contains("unix")) {
+            return 0;
+        }
+        Path root = outputDir.toAbsolutePath().normalize();
+        Path metadata = root.resolve(METADATA_DIR);
+        Path list = metadata.resolve(FILES_LIST);
+        boolean listed = Files.isRegularFile(list);
+        Set<Path> candidates = new LinkedHashSet<>();
+        try (Stream<Path> stream = Files.walk(listed ? metadata : root)) {
+            stream.filter(Files::isRegularFile).forEach(candidates::add);
+        }
+        if (listed) {
+            candidates.add(root.resolve(IGNORE_FILE));
+            for (String line : Files.readAllLines(list, StandardCharsets.UTF_8)) {
+                Path file = root.resolve(line.trim()).normalize();
+                if (!line.trim().isEmpty() && file.startsWith(root)) {
+                    candidates.add(file);
+                }
+            }
+        }
+        int count = 0;
+        for (Path file : candidates) {
+            if (!Files.isRegularFile(file, LinkOption.NOFOLLOW_LINKS)
+                    || ((Number) Files.getAttribute(file, "unix:nlink", LinkOption.NOFOLLOW_LINKS)).intValue() <= 1) {
+                continue;
+            }
+            Path copy = file.resolveSibling(file.getFileName() + "." + UUID.randomUUID() + ".tmp");
+            Files.copy(file, copy);
+            copy.toFile().setWritable(true, true);
+            Files.move(copy, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+            count++;
+        }
+        if (count > 0) {
+            LOGGER.info("{} hard-linked files in {} replaced with private copies", count, outputDir);
+        }
+        return count;
+    }
+
+    private static void update(MessageDigest digest, String text) {
+        digest.update(text.getBytes(StandardCharsets.UTF_8));
+        digest.update((byte) '\n');
+    }
+
+    private static String json(Map<String, ?> map) throws IOException {
+        return Json.mapper().writeValueAsString(null == map ? Collections.emptyMap() : new TreeMap<>(map));
+    }
+
+    private static void delete(Path dir) {
+        if (!Files.exists(dir)) {
+            return;
+        }
+        try (Stream<Path> files = Files.walk(dir)) {
+            files.sorted(Comparator.reverseOrder()).forEach(file -> {
+                // Windows 上不能删除只读文件
+                if (!file.toFile().delete()) {
+                    file.toFile().setWritable(true);
+                    file.toFile().delete();
+                }
+            });
+        } catch (IOException e) {
+            LOGGER.debug("delete {} failed: {}", dir, e.getMessage());
+        }
+    }
+
+    /**
+     * 缓存条目的大小和最近使用时间
+     */
+    private static final class Entry {
+        private final Path path;
+        private final long size;
+        private final long lastUsed;
+
+        private Entry(Path path, long size, long lastUsed) {
+            this.path = path;
+            this.size = size;
+            this.lastUsed = lastUsed;
+        }
+
+        private static Entry read(Path path) {
+            File file = path.resolve(ENTRY_FILE).toFile();
+            if (!file.isFile()) {
+                return null;
+            }
+            Properties properties = new Properties();
+            try (InputStream in = Files.newInputStream(file.toPath())) {
+                properties.load(in);
+                return new Entry(path, Long.parseLong(properties.getProperty("size", "0")), file.lastModified());
+            } catch (IOException | NumberFormatException e) {
+                return null;
+            }
+        }
+    }
+}
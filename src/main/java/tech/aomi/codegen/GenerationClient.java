@@ -0,0 +1,198 @@
+package tech.aomi.codegen;
+
+import io.swagger.v3.core.util.Json;
+
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStream;
+import java.net.InetAddress;
+import java.net.Socket;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+
+/**
+ * {@link GenerationDaemon} 的命令行客户端, 参数与 openapi-generator-cli generate 保持一致:
+ * <p>
+ * java -cp am-openapi-generator.jar:openapi-generator-cli.jar tech.aomi.codegen.GenerationClient
+ * -g my-go-gin-server -i api.yaml -o out -p moduleName=github.com/xx/xx
+ * <p>
+ * 其它命令: --ping, --stats, --shutdown
+ * <p>
+ * 请求使用的 token 从 daemon 的 token 文件中读取, 默认为 {@link GenerationDaemon#defaultTokenFile(int)}, 可以通过 --token-file 指定
+ */
+public class GenerationClient {
+
+    private final String host;
+
+    private final int port;
+
+    private final String token;
+
+    /**
+     * 从默认的 token 文件读取 token
+     */
+    public GenerationClient(int port) throws IOException {
+        this(InetAddress.getLoopbackAddress().getHostAddress(), port,
+                GenerationDaemon.readToken(GenerationDaemon.defaultTokenFile(port)));
+    }
+
+    public GenerationClient(String host, int port, String token) {
+        this.host = host;
+        this.port = port;
+        this.token = token;
+    }
+
+    public GenerationDaemon.Response generate(GenerationJob job) throws IOException {
+        GenerationDaemon.Request request = new GenerationDaemon.Request();
+        request.setCommand(GenerationDaemon.COMMAND_GENERATE);
+        request.setJob(job);
+        return send(request);
+    }
+
+    public GenerationDaemon.Response command(String command) throws IOException {
+        GenerationDaemon.Request request = new GenerationDaemon.Request();
+        request.setCommand(command);
+        return send(request);
+    }
+
+    public GenerationDaemon.Response send(GenerationDaemon.Request request) throws IOException {
+        if (null == request.getToken()) {
+            request.setToken(token);
+        }
+        try (Socket socket = new Socket(host, port)) {
+            OutputStream out = socket.getOutputStream();
+            out.write((Json.mapper().writeValueAsString(request) + "\n").getBytes(StandardCharsets.UTF_8));
+            out.flush();
+            BufferedReader reader = new BufferedReader(new InputStreamReader(socket.getInputStream(), StandardCharsets.UTF_8));
+            String line = reader.readLine();
+            if (null == line) {
+                throw new IOException("daemon closed the connection without response");
+            }
+            return Json.mapper().readValue(line, GenerationDaemon.Response.class);
+        }
+    }
+
+    public static void main(String[] args) throws IOException {
+        int port = GenerationDaemon.DEFAULT_PORT;
+        String command = GenerationDaemon.COMMAND_GENERATE;
+        Path tokenFile = null;
+        GenerationJob job = new GenerationJob();
+        for (int i = 0; i < args.length; i++) {
+            int next = parseJobOption(job, args, i);
+            if (next >= 0) {
+                i = next;
+                continue;
+            }
+            switch (args[i]) {
+                case "--port":
+                    port = Integer.parseInt(args[++i]);
+                    break;
+                case "--token-file":
+                    tokenFile = Paths.get(args[++i]);
+                    break;
+                case "--ping":
+                    command = GenerationDaemon.COMMAND_PING;
+                    break;
+                case "--stats":
+                    command = GenerationDaemon.COMMAND_STATS;
+                    break;
+                case "--shutdown":
+                    command = GenerationDaemon.COMMAND_SHUTDOWN;
+                    break;
+                default:
+                    System.err.println("unknown argument: " + args[i]);
+                    System.exit(2);
+            }
+        }
+        // 输入/输出路径按客户端的工作目录解析
+        resolvePaths(job);
+
+        if (null == tokenFile) {
+            tokenFile = GenerationDaemon.defaultTokenFile(port);
+        }
+        String token;
+        try {
+            token = GenerationDaemon.readToken(tokenFile);
+        } catch (IOException e) {
+            System.err.println("error: cannot read daemon token from " + tokenFile + ": " + e.getMessage());
+            System.exit(1);
+            return;
+        }
+        GenerationClient client = new GenerationClient(InetAddress.getLoopbackAddress().getHostAddress(), port, token);
+        GenerationDaemon.Response response = GenerationDaemon.COMMAND_GENERATE.equals(command)
+                ? client.generate(job) : client.command(command);
+        if (response.isOk()) {
+            System.out.println(response.getMessage()
+                    + (response.getFiles() > 0 ? ", " + response.getFiles() + " files in " + response.getMillis() + " ms" : ""));
+        } else {
+            System.err.println("error: " + response.getMessage());
+            System.exit(1);
+        }
+    }
+
+    /**
+     * 解析生成任务的参数, 返回最后一个已处理参数的下标, 不是任务参数时返回 -1
+     */
+    static int parseJobOption(GenerationJob job, String[] args, int i) {
+        switch (args[i]) {
+            case "-g":
+            case "--generator-name":
+                job.setGeneratorName(args[++i]);
+                return i;
+            case "-i":
+            case "--input-spec":
+                job.setInputSpec(args[++i]);
+                return i;
+            case "-o":
+            case "--output":
+                job.setOutputDir(args[++i]);
+                return i;
+            case "-t":
+            case "--template-dir":
+                job.setTemplateDir(args[++i]);
+                return i;
+            case "-p":
+            case "--additional-properties":
+                for (String kv : args[++i].split(",")) {
+                    String[] pair = kv.split("=", 2);
+                    job.getAdditionalProperties().put(pair[0], pair.length > 1 ? pair[1] : "");
+                }
+                return i;
+            case "--global-property":
+                for (String kv : args[++i].split(",")) {
+                    String[] pair = kv.split("=", 2);
+                    job.getGlobalProperties().put(pair[0], pair.length > 1 ? pair[1] : "");
+                }
+                return i;
+            case "--workers":
+                job.setWorkers(Integer.parseInt(args[++i]));
+                return i;
+            case "--incremental":
+                job.setIncremental(true);
+                return i;
+            case "--skip-unchanged":
+                job.setSkipUnchanged(true);
+                return i;
+            default:
+                return -1;
+        }
+    }
+
+    /**
+     * 相对路径按当前工作目录转换为绝对路径
+     */
+    static void resolvePaths(GenerationJob job) {
+        if (null != job.getInputSpec() && !job.getInputSpec().contains("://")) {
+            job.setInputSpec(new File(job.getInputSpec()).getAbsolutePath());
+        }
+        if (null != job.getOutputDir()) {
+            job.setOutputDir(new File(job.getOutputDir()).getAbsolutePath());
+        }
+        if (null != job.getTemplateDir()) {
+            job.setTemplateDir(new File(job.getTemplateDir()).getAbsolutePath());
+        }
+    }
+}
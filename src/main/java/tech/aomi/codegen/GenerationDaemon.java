@@ -0,0 +1,395 @@
+package tech.aomi.codegen;
+
+import io.swagger.v3.core.util.Json;
+import lombok.Getter;
+import lombok.Setter;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.BufferedReader;
+import java.io.Closeable;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStream;
+import java.net.InetAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.net.SocketException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.FileAlreadyExistsException;
+import java.nio.file.FileSystems;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.attribute.PosixFilePermissions;
+import java.security.MessageDigest;
+import java.security.SecureRandom;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * 常驻的生成服务
+ * 监听本机 TCP 端口, 每个连接发送一行 JSON 请求({@link Request}), 返回一行 JSON 响应({@link Response}).
+ * 任务可以写入任意目录, 启动时生成随机 token 并写入只有当前用户可以读取(0600)的文件, 默认为 ~/.am-openapi-generator/daemon-端口.token,
+ * 每个请求都必须带上该 token, 本机的其他用户无法提交任务或关闭服务. 服务关闭时删除 token 文件.
+ * 多个任务并发执行, 每个任务使用独立的生成器实例; 已编译的模板({@link CompiledTemplateCache})和 JIT 结果在任务之间共享.
+ * <p>
+ * 启动: java -cp openapi-generator-cli.jar:am-openapi-generator.jar tech.aomi.codegen.GenerationDaemon --port 7421 --jobs 4 [--token-file path]
+ * 提交任务见 {@link GenerationClient}
+ */
+public class GenerationDaemon implements Closeable {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(GenerationDaemon.class);
+
+    public static final int DEFAULT_PORT = 7421;
+
+    public static final String COMMAND_GENERATE = "generate";
+    public static final String COMMAND_PING = "ping";
+    public static final String COMMAND_STATS = "stats";
+    public static final String COMMAND_SHUTDOWN = "shutdown";
+
+    private static final int TOKEN_BYTES = 32;
+
+    private final ServerSocket server;
+
+    private final String token;
+
+    private final Path tokenFile;
+
+    /**
+     * 执行生成任务, 线程数即同时执行的任务数
+     */
+    private final ExecutorService jobs;
+
+    /**
+     * 处理连接, 等待任务完成时不占用任务线程
+     */
+    private final ExecutorService connections;
+
+    private final CountDownLatch closed = new CountDownLatch(1);
+
+    private final AtomicLong completedJobs = new AtomicLong();
+
+    private final AtomicLong failedJobs = new AtomicLong();
+
+    private final AtomicInteger runningJobs = new AtomicInteger();
+
+    private volatile boolean running;
+
+    public GenerationDaemon(int port, int concurrency) throws IOException {
+        this(port, concurrency, null);
+    }
+
+    /**
+     * @param tokenFile token 文件, 为 null 时使用 {@link #defaultTokenFile(int)}
+     */
+    public GenerationDaemon(int port, int concurrency, Path tokenFile) throws IOException {
+        this.server = new ServerSocket(port, 50, InetAddress.getLoopbackAddress());
+        try {
+            byte[] bytes = new byte[TOKEN_BYTES];
+            new SecureRandom().nextBytes(bytes);
+            this.token = IncrementalManifest.toHex(bytes);
+            this.tokenFile = null == tokenFile ? defaultTokenFile(getPort()) : tokenFile;
+            writeToken(this.tokenFile, token);
+        } catch (IOException | RuntimeException e) {
+            server.close();
+            throw e;
+        }
+        this.jobs = Executors.newFixedThreadPool(Math.max(1, concurrency), daemonThreads("codegen-job-"));
+        this.connections = Executors.newCachedThreadPool(daemonThreads("codegen-conn-"));
+    }
+
+    /**
+     * 默认的 token 文件: ~/.am-openapi-generator/daemon-端口.token
+     */
+    public static Path defaultTokenFile(int port) {
+        return Paths.get(System.getProperty("user.home"), ".am-openapi-generator", "daemon-" + port + ".token");
+    }
+
+    public Path getTokenFile() {
+        return tokenFile;
+    }
+
+    /**
+     * 先写入权限为 0600 的临时文件再替换, 文件在任何时刻都不能被其他用户读取
+     */
+    private static void writeToken(Path file, String token) throws IOException {
+        Path dir = file.toAbsolutePath().getParent();
+        boolean posix = FileSystems.getDefault().supportedFileAttributeViews().contains("posix");
+        if (!Files.isDirectory(dir)) {
+            try {
+                if (posix) {
+                    Files.createDirectories(dir, PosixFilePermissions.asFileAttribute(PosixFilePermissions.fromString("rwx------")));
+                } else {
+                    Files.createDirectories(dir);
+                }
+            } catch (FileAlreadyExistsException e) {
+                // 并发创建
+            }
+        }
+        Path tmp;
+        if (posix) {
+            tmp = Files.createTempFile(dir, "daemon", ".tmp", PosixFilePermissions.asFileAttribute(PosixFilePermissions.fromString("rw-------")));
+        } else {
+            tmp = Files.createTempFile(dir, "daemon", ".tmp");
+            File f = tmp.toFile();
+            f.setReadable(false, false);
+            f.setWritable(false, false);
+            f.setReadable(true, true);
+            f.setWritable(true, true);
+        }
+        try {
+            Files.write(tmp, token.getBytes(StandardCharsets.UTF_8));
+            Files.move(tmp, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } finally {
+            Files.deleteIfExists(tmp);
+        }
+    }
+
+    /**
+     * 读取 token 文件的内容
+     */
+    public static String readToken(Path file) throws IOException {
+        return new String(Files.readAllBytes(file), StandardCharsets.UTF_8).trim();
+    }
+
+    private boolean isAuthorized(Request request) {
+        return null != request.getToken() && MessageDigest.isEqual(
+                token.getBytes(StandardCharsets.UTF_8), request.getToken().getBytes(StandardCharsets.UTF_8));
+    }
+
+    /**
+     * 实际监听的端口, 构造时传入 0 时由系统分配
+     */
+    public int getPort() {
+        return server.getLocalPort();
+    }
+
+    public void start() {
+        running = true;
+        Thread acceptor = new Thread(this::acceptLoop, "codegen-daemon");
+        acceptor.setDaemon(true);
+        acceptor.start();
+        LOGGER.info("generation daemon listening on {}:{}, token file {}", server.getInetAddress().getHostAddress(), getPort(), tokenFile);
+    }
+
+    /**
+     * 等待服务关闭
+     */
+    public void awaitTermination() throws InterruptedException {
+        closed.await();
+    }
+
+    @Override
+    public void close() {
+        if (!running) {
+            closed.countDown();
+            return;
+        }
+        running = false;
+        try {
+            server.close();
+        } catch (IOException e) {
+            LOGGER.warn("close server socket failed: {}", e.getMessage());
+        }
+        jobs.shutdown();
+        connections.shutdown();
+        try {
+            Files.deleteIfExists(tokenFile);
+        } catch (IOException e) {
+            LOGGER.warn("delete token file {} failed: {}", tokenFile, e.getMessage());
+        }
+        closed.countDown();
+        LOGGER.info("generation daemon stopped, {} jobs completed, {} failed", completedJobs.get(), failedJobs.get());
+    }
+
+    private void acceptLoop() {
+        while (running) {
+            try {
+                Socket socket = server.accept();
+                connections.execute(() -> handle(socket));
+            } catch (SocketException e) {
+                // close() 关闭了 ServerSocket
+                if (running) {
+                    LOGGER.error("accept failed", e);
+                }
+            } catch (IOException e) {
+                LOGGER.error("accept failed", e);
+            }
+        }
+    }
+
+    private void handle(Socket socket) {
+        boolean shutdown = false;
+        try (Socket s = socket) {
+            BufferedReader reader = new BufferedReader(new InputStreamReader(s.getInputStream(), StandardCharsets.UTF_8));
+            String line = reader.readLine();
+            Response response;
+            if (null == line || line.trim().isEmpty()) {
+                response = Response.error("empty request");
+            } else {
+                Request request;
+                try {
+                    request = Json.mapper().readValue(line, Request.class);
+                } catch (IOException e) {
+                    request = null;
+                }
+                if (null == request) {
+                    response = Response.error("invalid request");
+                } else if (!isAuthorized(request)) {
+                    LOGGER.warn("rejected request without a valid token from {}", s.getRemoteSocketAddress());
+                    response = Response.error("unauthorized");
+                } else {
+                    shutdown = COMMAND_SHUTDOWN.equals(request.getCommand());
+                    response = execute(request);
+                }
+            }
+            OutputStream out = s.getOutputStream();
+            out.write((Json.mapper().writeValueAsString(response) + "\n").getBytes(StandardCharsets.UTF_8));
+            out.flush();
+        } catch (IOException e) {
+            LOGGER.warn("handle request failed: {}", e.getMessage());
+        }
+        if (shutdown) {
+            close();
+        }
+    }
+
+    private Response execute(Request request) {
+        String command = null == request.getCommand() ? COMMAND_GENERATE : request.getCommand();
+        switch (command) {
+            case COMMAND_PING:
+                return Response.ok("pong");
+            case COMMAND_STATS:
+                return Response.ok("running=" + runningJobs.get() + ", completed=" + completedJobs.get()
+                        + ", failed=" + failedJobs.get() + ", " + CompiledTemplateCache.getInstance());
+            case COMMAND_SHUTDOWN:
+                return Response.ok("bye");
+            case COMMAND_GENERATE:
+                return generate(request.getJob());
+            default:
+                return Response.error("unknown command: " + command);
+        }
+    }
+
+    private Response generate(GenerationJob job) {
+        if (null == job || null == job.getGeneratorName() || null == job.getInputSpec() || null == job.getOutputDir()) {
+            return Response.error("generatorName, inputSpec and outputDir are required");
+        }
+        long start = System.nanoTime();
+        Future<List<File>> future;
+        try {
+            future = jobs.submit(() -> {
+                runningJobs.incrementAndGet();
+                try {
+                    return job.run();
+                } finally {
+                    runningJobs.decrementAndGet();
+                }
+            });
+        } catch (RuntimeException e) {
+            return Response.error("daemon is shutting down");
+        }
+        try {
+            List<File> files = future.get();
+            completedJobs.incrementAndGet();
+            Response response = Response.ok("generated " + job.getGeneratorName() + " to " + job.getOutputDir());
+            response.setFiles(files.size());
+            response.setMillis((System.nanoTime() - start) / 1_000_000);
+            return response;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            future.cancel(true);
+            failedJobs.incrementAndGet();
+            return Response.error("interrupted");
+        } catch (ExecutionException e) {
+            failedJobs.incrementAndGet();
+            LOGGER.error("generate {} failed", job.getGeneratorName(), e.getCause());
+            return Response.error(String.valueOf(e.getCause()));
+        }
+    }
+
+    private static ThreadFactory daemonThreads(String prefix) {
+        AtomicInteger count = new AtomicInteger();
+        return r -> {
+            Thread thread = new Thread(r, prefix + count.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        };
+    }
+
+    public static void main(String[] args) throws Exception {
+        int port = DEFAULT_PORT;
+        int concurrency = Runtime.getRuntime().availableProcessors();
+        Path tokenFile = null;
+        for (int i = 0; i < args.length; i++) {
+            switch (args[i]) {
+                case "--port":
+                    port = Integer.parseInt(args[++i]);
+                    break;
+                case "--jobs":
+                    concurrency = Integer.parseInt(args[++i]);
+                    break;
+                case "--token-file":
+                    tokenFile = Paths.get(args[++i]);
+                    break;
+                default:
+                    System.err.println("usage: GenerationDaemon [--port " + DEFAULT_PORT + "] [--jobs N] [--token-file path]");
+                    System.exit(1);
+            }
+        }
+        GenerationDaemon daemon = new GenerationDaemon(port, concurrency, tokenFile);
+        Runtime.getRuntime().addShutdownHook(new Thread(daemon::close));
+        daemon.start();
+        daemon.awaitTermination();
+    }
+
+    /**
+     * 请求, command 为空时等同于 generate
+     */
+    @Getter
+    @Setter
+    public static class Request {
+        private String command;
+        /**
+         * token 文件的内容
+         */
+        private String token;
+        private GenerationJob job;
+    }
+
+    @Getter
+    @Setter
+    public static class Response {
+        private boolean ok;
+        private String message;
+        /**
+         * 生成的文件数量
+         */
+        private int files;
+        private long millis;
+
+        public static Response ok(String message) {
+            Response response = new Response();
+            response.setOk(true);
+            response.setMessage(message);
+            return response;
+        }
+
+        public static Response error(String message) {
+            Response response = new Response();
+            response.setOk(false);
+            response.setMessage(message);
+            return response;
+        }
+    }
+}
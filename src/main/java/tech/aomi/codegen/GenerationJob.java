@@ -0,0 +1,150 @@
+package tech.aomi.codegen;
+
+import lombok.Getter;
+import lombok.Setter;
+import org.openapitools.codegen.ClientOptInput;
+import org.openapitools.codegen.config.CodegenConfigurator;
+import org.openapitools.codegen.config.GlobalSettings;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Paths;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * 一次生成任务, 每次运行使用独立的生成器实例
+ */
+@Getter
+@Setter
+public class GenerationJob {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(GenerationJob.class);
+
+    /**
+     * 生成器名称, 例如 my-go-gin-server
+     */
+    private String generatorName;
+
+    private String inputSpec;
+
+    private String outputDir;
+
+    /**
+     * 自定义模板目录
+     */
+    private String templateDir;
+
+    private Map<String, Object> additionalProperties = new HashMap<>();
+
+    /**
+     * 对应 openapi-generator 的 globalProperties, 例如 models、apis
+     */
+    private Map<String, String> globalProperties = new HashMap<>();
+
+    /**
+     * 并行生成的线程数, 见 {@link ParallelGenerator}
+     */
+    private int workers = 1;
+
+    private boolean incremental;
+
+    /**
+     * 内容相同的文件不重新写入, 与上游的 enableMinimalUpdate 效果相同, 见 {@link ParallelGenerator}
+     */
+    private boolean skipUnchanged;
+
+    /**
+     * 生成结果缓存目录, 为空时不使用缓存, 见 {@link GenerationCache}
+     */
+    private String cacheDir;
+
+    /**
+     * 缓存目录的大小上限(byte)
+     */
+    private long cacheMaxBytes = GenerationCache.DEFAULT_MAX_BYTES;
+
+    /**
+     * 命中缓存时使用硬链接代替复制, 恢复的文件只读, 再次生成前由 {@link ParallelGenerator} 替换为独立的副本
+     */
+    private boolean cacheLinks;
+
+    public CodegenConfigurator toConfigurator() {
+        CodegenConfigurator configurator = new CodegenConfigurator()
+                .setGeneratorName(generatorName)
+                .setInputSpec(inputSpec)
+                .setOutputDir(outputDir);
+        if (null != templateDir && !templateDir.isEmpty()) {
+            configurator.setTemplateDir(templateDir);
+        }
+        if (null != additionalProperties) {
+            configurator.setAdditionalProperties(new HashMap<>(additionalProperties));
+        }
+        if (null != globalProperties) {
+            globalProperties.forEach(configurator::addGlobalProperty);
+        }
+        return configurator;
+    }
+
+    public ParallelGenerator newGenerator() {
+        ParallelGenerator generator = new ParallelGenerator(workers);
+        generator.setIncremental(incremental);
+        generator.setSkipUnchanged(skipUnchanged);
+        return generator;
+    }
+
+    /**
+     * 在当前线程中执行生成
+     */
+    public List<File> run() {
+        return run(null);
+    }
+
+    /**
+     * 在当前线程中执行生成, sharedSpec 不为空时使用其副本, 不再解析 inputSpec
+     */
+    public List<File> run(SharedSpec sharedSpec) {
+        GenerationCache cache = null;
+        String cacheKey = null;
+        if (null != cacheDir && !cacheDir.isEmpty()) {
+            cache = new GenerationCache(Paths.get(cacheDir), cacheMaxBytes);
+            try {
+                cacheKey = GenerationCache.key(this);
+            } catch (IOException e) {
+                LOGGER.warn("compute generation cache key failed: {}", e.getMessage());
+            }
+        }
+        if (null != cacheKey) {
+            List<File> files = cache.restore(cacheKey, new File(outputDir), cacheLinks);
+            if (null != files) {
+                return files;
+            }
+        }
+        try {
+            long start = System.nanoTime();
+            ParallelGenerator generator = newGenerator();
+            long parsed;
+            if (null == sharedSpec) {
+                ClientOptInput input = toConfigurator().toClientOptInput();
+                parsed = System.nanoTime();
+                generator.opts(input);
+            } else {
+                // 复制共享 spec 的耗时, 包括 opts
+                sharedSpec.opts(generator, toConfigurator());
+                parsed = System.nanoTime();
+            }
+            GenerationReport.recordParse(generator.getConfig(), parsed - start);
+            List<File> files = generator.generate();
+            if (null != cacheKey) {
+                cache.publish(cacheKey, new File(outputDir), files);
+            }
+            return files;
+        } finally {
+            // globalProperties 保存在 ThreadLocal 中, 线程复用时不能影响下一个任务
+            GlobalSettings.reset();
+        }
+    }
+}
@@ -0,0 +1,183 @@
+package tech.aomi.codegen;
+
+import io.swagger.v3.core.util.Json;
+import lombok.Getter;
+import lombok.Setter;
+import org.openapitools.codegen.CodegenConfig;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.time.OffsetDateTime;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.LongAccumulator;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * 一次生成的各阶段耗时和计数
+ * 开启 generationReport 后, 生成结束时写入输出目录的 .openapi-generator/generation-report.json.
+ * 线程安全, 并行处理 model 和并行渲染时共用. 未开启时不记录
+ */
+public class GenerationReport {
+
+    public static final String FILE_NAME = ".openapi-generator" + File.separator + "generation-report.json";
+
+    /**
+     * 开启报告的参数
+     */
+    public static final String GENERATION_REPORT = "generationReport";
+
+    public static final String PARSE = "parse";
+    public static final String PROCESS_OPTS = "processOpts";
+    public static final String POST_PROCESS_MODELS = "postProcessModels";
+    public static final String UPDATE_ALL_MODELS = "updateAllModels";
+    public static final String POST_PROCESS_ALL_MODELS = "postProcessAllModels";
+    /**
+     * 按 tag 记录, 例如 postProcessOperations/user
+     */
+    public static final String POST_PROCESS_OPERATIONS = "postProcessOperations/";
+    /**
+     * 按模板记录, 例如 render/model.mustache
+     */
+    public static final String RENDER = "render/";
+    public static final String WRITE = "write";
+
+    public static final String MODELS = "models";
+    public static final String OPERATIONS = "operations";
+    public static final String CONDITIONS = "conditions";
+    public static final String IMPORTS = "imports";
+    public static final String TEMPLATE_CACHE_HITS = "templateCacheHits";
+    public static final String NAMING_CACHE_HITS = "namingCacheHits";
+    public static final String NAMING_CACHE_MISSES = "namingCacheMisses";
+    /**
+     * 开启 pruneUnusedSchemas 后移除的 schema 数量
+     */
+    public static final String PRUNED_SCHEMAS = "prunedSchemas";
+
+    @Getter
+    @Setter
+    private volatile boolean enabled;
+
+    private final ConcurrentMap<String, Phase> phases = new ConcurrentHashMap<>();
+
+    private final ConcurrentMap<String, LongAdder> counters = new ConcurrentHashMap<>();
+
+    /**
+     * 生成器开启了报告时返回其报告, 否则返回 null
+     */
+    public static GenerationReport of(CodegenConfig config) {
+        if (!(config instanceof ReportingCodegen)) {
+            return null;
+        }
+        GenerationReport report = ((ReportingCodegen) config).getGenerationReport();
+        return null != report && report.isEnabled() ? report : null;
+    }
+
+    /**
+     * 记录文档解析(toClientOptInput)的耗时.
+     * 解析在 processOpts 之前完成, 这里根据 generationReport 参数提前开启报告
+     *
+     * @param config    生成器 opts 之后的配置
+     * @param parseNanos 解析的耗时
+     */
+    public static void recordParse(CodegenConfig config, long parseNanos) {
+        if (!(config instanceof ReportingCodegen)) {
+            return;
+        }
+        Object enabled = config.additionalProperties().get(GENERATION_REPORT);
+        if (null == enabled || !Boolean.parseBoolean(enabled.toString())) {
+            return;
+        }
+        GenerationReport report = ((ReportingCodegen) config).getGenerationReport();
+        report.setEnabled(true);
+        report.record(PARSE, parseNanos);
+    }
+
+    /**
+     * 记录一次阶段耗时, 同名阶段累加
+     */
+    public void record(String phase, long nanos) {
+        if (!enabled) {
+            return;
+        }
+        phases.computeIfAbsent(phase, k -> new Phase()).add(nanos);
+    }
+
+    /**
+     * 记录从 startNanos 到现在的耗时
+     */
+    public void recordSince(String phase, long startNanos) {
+        record(phase, System.nanoTime() - startNanos);
+    }
+
+    public void increment(String counter, long delta) {
+        if (!enabled || delta == 0) {
+            return;
+        }
+        counters.computeIfAbsent(counter, k -> new LongAdder()).add(delta);
+    }
+
+    public long getCounter(String counter) {
+        LongAdder adder = counters.get(counter);
+        return null == adder ? 0 : adder.sum();
+    }
+
+    /**
+     * 当前数据的快照, 阶段和计数按名称排序
+     */
+    public Map<String, Object> toMap(CodegenConfig config) {
+        Map<String, Object> phaseMap = new TreeMap<>();
+        phases.forEach((name, phase) -> phaseMap.put(name, phase.toMap()));
+        Map<String, Object> counterMap = new TreeMap<>();
+        counters.forEach((name, adder) -> counterMap.put(name, adder.sum()));
+
+        Map<String, Object> result = new LinkedHashMap<>();
+        result.put("generator", config.getName());
+        result.put("generatedAt", OffsetDateTime.now().toString());
+        result.put("phases", phaseMap);
+        result.put("counters", counterMap);
+        return result;
+    }
+
+    /**
+     * 写入输出目录, 先写临时文件再替换, 看板读取时不会读到不完整的文件
+     */
+    public void write(CodegenConfig config) throws IOException {
+        Path target = Paths.get(config.getOutputDir(), FILE_NAME);
+        Files.createDirectories(target.getParent());
+        Path tmp = target.resolveSibling(target.getFileName() + ".tmp");
+        Files.write(tmp, Json.pretty(toMap(config)).getBytes(StandardCharsets.UTF_8));
+        Files.move(tmp, target, StandardCopyOption.REPLACE_EXISTING);
+    }
+
+    /**
+     * 一个阶段的累计耗时
+     */
+    private static final class Phase {
+        private final LongAdder count = new LongAdder();
+        private final LongAdder totalNanos = new LongAdder();
+        private final LongAccumulator maxNanos = new LongAccumulator(Math::max, 0);
+
+        private void add(long nanos) {
+            count.increment();
+            totalNanos.add(nanos);
+            maxNanos.accumulate(nanos);
+        }
+
+        private Map<String, Object> toMap() {
+            Map<String, Object> map = new LinkedHashMap<>();
+            map.put("count", count.sum());
+            map.put("totalMillis", totalNanos.sum() / 1_000_000.0);
+            map.put("maxMillis", maxNanos.get() / 1_000_000.0);
+            return map;
+        }
+    }
+}
@@ -0,0 +1,195 @@
+package tech.aomi.codegen;
+
+import com.samskivert.mustache.DefaultCollector;
+import com.samskivert.mustache.Mustache;
+import com.samskivert.mustache.Template;
+import org.openapitools.codegen.CodegenParameter;
+import org.openapitools.codegen.CodegenProperty;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * 低内存模式使用的模板取值器
+ * 属性/参数没有复制为 ExtendedCodegenProperty/ExtendedCodegenParameter,
+ * 模板中使用的扩展字段在取值时根据原对象和生成器的配置计算, 结果与复制模式一致
+ */
+public class GoExtrasCollector extends DefaultCollector {
+
+    /**
+     * ExtendedCodegenProperty/ExtendedCodegenParameter 中模板可以访问的扩展字段
+     */
+    private static final Set<String> NAMES = Collections.unmodifiableSet(new HashSet<>(Arrays.asList(
+            "datetimeFormat", "dateFormat", "timeFormat",
+            "importPath", "packageName", "alias", "needImport",
+            "conditions", "hasConditions", "validTag",
+            "isIpv4", "isIpv6", "isHostname", "isTime", "isAnyTime"
+    )));
+
+    /**
+     * 每个线程最多记录的对象数, 超过时清空. 模板按属性/参数依次渲染, 同一个对象的取值是连续的
+     */
+    private static final int MEMO_LIMIT = 256;
+
+    private final AbstractGoWebServerGenerator generator;
+
+    private final Mustache.VariableFetcher extrasFetcher = this::getExtra;
+
+    /**
+     * 属性/参数 -> 已计算的校验条件和 tag, 模板中同一个对象会多次读取 conditions/hasConditions/validTag.
+     * 多个文件可以同时渲染(ParallelGenerator), 每个线程独立记录
+     */
+    private final ThreadLocal<Map<Object, Validation>> memo = ThreadLocal.withInitial(IdentityHashMap::new);
+
+    public GoExtrasCollector(AbstractGoWebServerGenerator generator) {
+        this.generator = generator;
+    }
+
+    @Override
+    public Mustache.VariableFetcher createFetcher(Object ctx, String name) {
+        Mustache.VariableFetcher fetcher = super.createFetcher(ctx, name);
+        if (null != fetcher) {
+            return fetcher;
+        }
+        if ((ctx instanceof CodegenProperty || ctx instanceof CodegenParameter) && NAMES.contains(name)) {
+            return extrasFetcher;
+        }
+        return null;
+    }
+
+    private Object getExtra(Object ctx, String name) {
+        if (!Boolean.TRUE.equals(generator.getLowMemoryMode())) {
+            // 与访问原对象上不存在的字段一致
+            return Template.NO_FETCHER_FOUND;
+        }
+        switch (name) {
+            case "datetimeFormat":
+                return generator.getDatetimeFormat();
+            case "dateFormat":
+                return generator.getDateFormat();
+            case "timeFormat":
+                return generator.getTimeFormat();
+            default:
+                break;
+        }
+        if (ctx instanceof CodegenProperty) {
+            return getPropertyExtra((CodegenProperty) ctx, name);
+        }
+        return getParameterExtra((CodegenParameter) ctx, name);
+    }
+
+    private Object getPropertyExtra(CodegenProperty p, String name) {
+        switch (name) {
+            case "importPath":
+                return generator.getPropertyImportPath(p);
+            case "packageName":
+                return generator.getPropertyPackageName(p);
+            case "alias":
+                return generator.getPropertyAlias(p);
+            case "needImport":
+                return Boolean.TRUE.equals(generator.needImports.get(p));
+            case "conditions":
+                return validationOf(p).conditions;
+            case "hasConditions":
+                return !validationOf(p).conditions.isEmpty();
+            case "validTag":
+                return validationOf(p).validTag();
+            case "isAnyTime":
+                return p.isDateTime || p.isDate || ExtendedCodegenProperty.isFormat(p.getFormat(), "time");
+            default:
+                return getFormatExtra(p.getFormat(), name);
+        }
+    }
+
+    private Object getParameterExtra(CodegenParameter p, String name) {
+        switch (name) {
+            case "importPath":
+            case "packageName":
+            case "alias":
+                return null;
+            case "needImport":
+                return false;
+            case "conditions":
+                return validationOf(p).conditions;
+            case "hasConditions":
+                return !validationOf(p).conditions.isEmpty();
+            case "validTag":
+                return validationOf(p).validTag();
+            case "isAnyTime":
+                return p.isDateTime || p.isDate;
+            default:
+                // 与复制模式一致: CodegenParameter 不保存 format(getFormat 总是返回 null), 参数的 format 判断都为 false
+                return getFormatExtra(null, name);
+        }
+    }
+
+    private Validation validationOf(Object ctx) {
+        Map<Object, Validation> map = memo.get();
+        Validation validation = map.get(ctx);
+        if (null == validation) {
+            if (map.size() >= MEMO_LIMIT) {
+                map.clear();
+            }
+            validation = ctx instanceof CodegenProperty
+                    ? new Validation((CodegenProperty) ctx)
+                    : new Validation((CodegenParameter) ctx);
+            map.put(ctx, validation);
+        }
+        return validation;
+    }
+
+    private static Object getFormatExtra(String format, String name) {
+        switch (name) {
+            case "isIpv4":
+                return ExtendedCodegenProperty.isFormat(format, "ipv4");
+            case "isIpv6":
+                return ExtendedCodegenProperty.isFormat(format, "ipv6");
+            case "isHostname":
+                return ExtendedCodegenProperty.isFormat(format, "hostname");
+            case "isTime":
+                return ExtendedCodegenProperty.isFormat(format, "time");
+            default:
+                return Template.NO_FETCHER_FOUND;
+        }
+    }
+
+    /**
+     * 一个属性/参数的校验条件, validTag 首次使用时计算
+     */
+    private final class Validation {
+        private final List<Map<String, Object>> conditions;
+        private final List<String> _enum;
+        private final boolean readOnly;
+        private final String minimum;
+        private final String maximum;
+        private String validTag;
+
+        private Validation(CodegenProperty p) {
+            this.conditions = ExtendedCodegenProperty.conditionsOf(p, generator.supportValidMultipleOf, generator.supportValidRegexp);
+            this._enum = p._enum;
+            this.readOnly = p.isReadOnly;
+            this.minimum = p.minimum;
+            this.maximum = p.maximum;
+        }
+
+        private Validation(CodegenParameter p) {
+            this.conditions = ExtendedCodegenParameter.conditionsOf(p, generator.supportValidMultipleOf, generator.supportValidRegexp);
+            this._enum = p._enum;
+            this.readOnly = false;
+            this.minimum = p.minimum;
+            this.maximum = p.maximum;
+        }
+
+        private String validTag() {
+            if (null == validTag) {
+                validTag = null == generator.validTagBuilder ? "" : generator.validTagBuilder.build(conditions, _enum, readOnly, minimum, maximum);
+            }
+            return validTag;
+        }
+    }
+}
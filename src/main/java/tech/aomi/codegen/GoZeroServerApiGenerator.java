@@ -15,9 +15,11 @@ import java.io.File;
 import java.nio.file.Path;
 import java.nio.file.Paths;
 import java.util.Arrays;
+import java.util.Collections;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.Set;
 import java.util.stream.Collectors;
 
 public class GoZeroServerApiGenerator extends AbstractGoWebServerGenerator {
@@ -40,6 +42,7 @@ public class GoZeroServerApiGenerator extends AbstractGoWebServerGenerator {
 
     public GoZeroServerApiGenerator() {
         super();
+        validTagBuilder = ValidTagBuilder.GO_ZERO;
         // 不支持时间格式
         typeMapping.put("DateTime", "string");
         serviceName = "app-api";
@@ -90,6 +93,11 @@ public class GoZeroServerApiGenerator extends AbstractGoWebServerGenerator {
         supportingFiles.add(new SupportingFile("root_api.mustache", this.apiPackage, "app.api"));
     }
 
+    @Override
+    public Set<String> routeSupportingTemplates() {
+        return Collections.singleton("root_api.mustache");
+    }
+
     @Override
     public ModelsMap postProcessModels(ModelsMap objs, ModelsMap models) {
         return models;
@@ -11,7 +11,10 @@ import java.io.File;
 import java.nio.file.Paths;
 import java.util.Collections;
 import java.util.List;
+import java.util.Locale;
 import java.util.Map;
+import java.util.Set;
+import java.util.stream.Collectors;
 
 import static org.openapitools.codegen.utils.StringUtils.underscore;
 
@@ -30,6 +33,7 @@ public class GoZeroServerGenerator extends AbstractGoWebServerGenerator {
 
     public GoZeroServerGenerator() {
         super();
+        validTagBuilder = ValidTagBuilder.GO_ZERO;
         // 不支持时间格式
         typeMapping.put("DateTime", "string");
         serviceName = "app-api";
@@ -88,8 +92,18 @@ public class GoZeroServerGenerator extends AbstractGoWebServerGenerator {
         supportingFiles.add(new SupportingFile("model.mustache", this.modelPackage, "types.go"));
     }
 
+    @Override
+    public Set<String> routeSupportingTemplates() {
+        // types.go 包含所有 model, 不属于路由文件
+        return Collections.singleton("routes.mustache");
+    }
+
     @Override
     public OperationsMap postProcessOperationsWithModels(OperationsMap objs, List<ModelMap> allModels) {
+        // 已有的导入, 统一小写后比较
+        Set<String> importNames = objs.getImports().stream()
+                .map(i -> i.get("import").toLowerCase(Locale.ROOT))
+                .collect(Collectors.toSet());
         // gozero 不支持数组参数
         objs.getOperations().getOperation().forEach(item -> {
             if (item.allParams.size() == 1 && item.allParams.get(0).isBodyParam && (item.allParams.get(0).isArray || item.allParams.get(0).isMap)) {
@@ -97,10 +111,10 @@ public class GoZeroServerGenerator extends AbstractGoWebServerGenerator {
                 item.allParams.get(0).vendorExtensions.put("isBaseTypeBody", true);
                 item.vendorExtensions.put("isBaseTypeBody", true);
                 List<Map<String, String>> imports = objs.getImports();
-                if (imports.stream().noneMatch(i -> i.get("import").equalsIgnoreCase("encoding/json"))) {
+                if (importNames.add("encoding/json")) {
                     imports.add(Collections.singletonMap("import", "encoding/json"));
                 }
-                if (imports.stream().noneMatch(i -> i.get("import").equalsIgnoreCase("io"))) {
+                if (importNames.add("io")) {
                     imports.add(Collections.singletonMap("import", "io"));
                 }
                 objs.setImports(imports);
@@ -120,7 +134,7 @@ public class GoZeroServerGenerator extends AbstractGoWebServerGenerator {
         if (null != t && !t.isEmpty()) {
             dir += t.replace('/', File.separatorChar) + File.separatorChar;
         }
-        dir = dir.replaceAll("-", "_");
+        dir = dir.replace('-', '_');
 
         String suffix = this.apiTemplateFiles().get(templateName);
         return Paths.get(outputFolder, dir, this.toApiFilename(tag) + suffix).toString();
@@ -130,7 +144,7 @@ public class GoZeroServerGenerator extends AbstractGoWebServerGenerator {
     public String toApiFilename(String name) {
         final String apiName;
         // replace - with _ e.g. created-at => created_at
-        String api = name.replaceAll("-", "_");
+        String api = name.replace('-', '_');
         // e.g. PetApi.go => pet_api.go
         api = underscore(api);
         if (isReservedFilename(api)) {
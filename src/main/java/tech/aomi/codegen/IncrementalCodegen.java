@@ -0,0 +1,18 @@
+package tech.aomi.codegen;
+
+import java.util.Collections;
+import java.util.Set;
+
+/**
+ * 增量生成时生成器提供的额外信息
+ */
+public interface IncrementalCodegen {
+
+    /**
+     * 只依赖路由(tag、method、path、operationId)的 supportingFiles 模板, 例如 routers.mustache.
+     * 这些文件只在路由变化时重新生成, 其它 supportingFiles 在任意 schema 变化时也会重新生成
+     */
+    default Set<String> routeSupportingTemplates() {
+        return Collections.emptySet();
+    }
+}
@@ -0,0 +1,404 @@
+package tech.aomi.codegen;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import io.swagger.v3.core.util.Json;
+import io.swagger.v3.oas.models.OpenAPI;
+import io.swagger.v3.oas.models.media.Schema;
+import io.swagger.v3.oas.models.tags.Tag;
+import lombok.Getter;
+import lombok.Setter;
+import org.openapitools.codegen.CodegenConfig;
+import org.openapitools.codegen.utils.ImplementationVersion;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.TreeSet;
+import java.util.jar.JarEntry;
+import java.util.jar.JarFile;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+/**
+ * 增量生成清单, 保存在输出目录的 .openapi-generator/incremental.json
+ * 1. options: 生效的生成器配置、文档的公共部分(info、servers、非 schema 的 components)、自定义模板
+ * 2. tags: 每个 tag 下接口的 hash, 包含接口引用的 schema 及其传递依赖
+ * 3. schemas: 每个 schema 的 hash, 包含传递依赖的 schema
+ * 4. routes: 路由(tag、method、path、operationId)的 hash
+ * 5. files: 每个生成文件对应的输入 hash, 与本次计算的结果一致时跳过生成
+ */
+@Getter
+@Setter
+public class IncrementalManifest {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(IncrementalManifest.class);
+
+    public static final String FILE_NAME = ".openapi-generator" + File.separator + "incremental.json";
+
+    private static final String SCHEMA_REF_PREFIX = "#/components/schemas/";
+
+    private static final String DEFAULT_TAG = "default";
+
+    /**
+     * 每次生成都会变化的配置, 不参与 hash
+     */
+    private static final Set<String> VOLATILE_OPTIONS = Collections.singleton("generatedDate");
+
+    /**
+     * 计算一次后缓存, 见 {@link #pluginVersion()}
+     */
+    private static volatile String pluginVersion;
+
+    private String options;
+
+    private String routes;
+
+    private Map<String, String> tags = new TreeMap<>();
+
+    private Map<String, String> schemas = new TreeMap<>();
+
+    private Map<String, String> files = new TreeMap<>();
+
+    /**
+     * 根据处理后的文档和生成器配置计算各部分的 hash, files 为空
+     */
+    public static IncrementalManifest build(OpenAPI openAPI, CodegenConfig config) {
+        IncrementalManifest manifest = new IncrementalManifest();
+        Map<String, Schema> componentSchemas = null == openAPI.getComponents() || null == openAPI.getComponents().getSchemas()
+                ? Collections.emptyMap() : openAPI.getComponents().getSchemas();
+
+        Map<String, String> ownHashes = new HashMap<>();
+        Map<String, Set<String>> ownRefs = new HashMap<>();
+        componentSchemas.forEach((name, schema) -> {
+            JsonNode node = Json.mapper().valueToTree(schema);
+            ownHashes.put(name, hash(node.toString()));
+            ownRefs.put(name, schemaRefs(node));
+        });
+        // 父类 model 中会生成子类信息(Go 的 discriminator, Dart 的 x-is-parent 只要有子类就会设置),
+        // 通过 allOf 继承它的 schema 都算作父类的依赖
+        componentSchemas.forEach((name, schema) -> {
+            if (null == schema.getAllOf()) {
+                return;
+            }
+            for (Object item : schema.getAllOf()) {
+                String ref = ((Schema<?>) item).get$ref();
+                if (null == ref || !ref.startsWith(SCHEMA_REF_PREFIX)) {
+                    continue;
+                }
+                String parent = ref.substring(SCHEMA_REF_PREFIX.length());
+                if (ownRefs.containsKey(parent)) {
+                    ownRefs.get(parent).add(name);
+                }
+            }
+        });
+        componentSchemas.keySet().forEach(name ->
+                manifest.schemas.put(name, closureHash(Collections.singleton(name), ownHashes, ownRefs)));
+
+        Map<String, StringBuilder> tagContents = new TreeMap<>();
+        Map<String, Set<String>> tagRefs = new HashMap<>();
+        List<String> routeList = new ArrayList<>();
+        Map<String, Tag> swaggerTags = new HashMap<>();
+        if (null != openAPI.getTags()) {
+            openAPI.getTags().forEach(tag -> swaggerTags.putIfAbsent(tag.getName(), tag));
+        }
+        if (null != openAPI.getPaths()) {
+            openAPI.getPaths().forEach((path, pathItem) -> pathItem.readOperationsMap().forEach((method, operation) -> {
+                JsonNode node = Json.mapper().valueToTree(new Object[]{operation, pathItem.getParameters()});
+                List<String> tagNames = null == operation.getTags() || operation.getTags().isEmpty()
+                        ? Collections.singletonList(DEFAULT_TAG) : operation.getTags();
+                for (String tagName : tagNames) {
+                    // 与 DefaultGenerator 中接口分组的方式一致
+                    String tag = config.sanitizeTag(tagName);
+                    tagContents.computeIfAbsent(tag, k -> new StringBuilder())
+                            .append(method).append(' ').append(path).append('\n')
+                            .append(node).append('\n')
+                            .append(json(swaggerTags.get(tagName))).append('\n');
+                    tagRefs.computeIfAbsent(tag, k -> new TreeSet<>()).addAll(schemaRefs(node));
+                    routeList.add(tag + ' ' + method + ' ' + path + ' ' + operation.getOperationId());
+                }
+            }));
+        }
+        tagContents.forEach((tag, content) -> manifest.tags.put(tag,
+                hash(content + closureHash(tagRefs.get(tag), ownHashes, ownRefs))));
+
+        Collections.sort(routeList);
+        manifest.routes = hash(String.join("\n", routeList));
+        manifest.options = optionsHash(openAPI, config);
+        return manifest;
+    }
+
+    /**
+     * model 文件的输入 hash, schema 不存在时返回 null
+     */
+    public String modelKey(String schemaName) {
+        String schema = schemas.get(schemaName);
+        return null == schema ? null : hash(options + "\nschema " + schema);
+    }
+
+    /**
+     * api 文件的输入 hash, tag 不存在时返回 null
+     */
+    public String apiKey(String tag) {
+        String tagHash = tags.get(tag);
+        return null == tagHash ? null : hash(options + "\ntag " + tagHash);
+    }
+
+    /**
+     * 只依赖路由的 supportingFiles 的输入 hash
+     */
+    public String routeKey() {
+        return hash(options + "\nroutes " + routes);
+    }
+
+    /**
+     * 其它 supportingFiles 的输入 hash, 依赖全部内容
+     */
+    public String supportingKey() {
+        return hash(options + "\nroutes " + routes + "\ntags " + tags + "\nschemas " + schemas);
+    }
+
+    /**
+     * 读取输出目录中的清单, 不存在或无法解析时返回 null
+     */
+    public static IncrementalManifest read(String outputDir) {
+        File file = new File(outputDir, FILE_NAME);
+        if (!file.isFile()) {
+            return null;
+        }
+        try {
+            return Json.mapper().readValue(file, IncrementalManifest.class);
+        } catch (IOException e) {
+            LOGGER.warn("Ignore invalid incremental manifest {}: {}", file, e.getMessage());
+            return null;
+        }
+    }
+
+    /**
+     * 写入输出目录, 先写临时文件再替换, 避免中断时留下不完整的清单
+     */
+    public void write(String outputDir) throws IOException {
+        Path target = Paths.get(outputDir, FILE_NAME);
+        Files.createDirectories(target.getParent());
+        Path tmp = target.resolveSibling(target.getFileName() + ".tmp");
+        Files.write(tmp, Json.pretty(this).getBytes(StandardCharsets.UTF_8));
+        Files.move(tmp, target, StandardCopyOption.REPLACE_EXISTING);
+    }
+
+    private static String optionsHash(OpenAPI openAPI, CodegenConfig config) {
+        StringBuilder sb = new StringBuilder();
+        sb.append("generator ").append(config.getName()).append('\n');
+        sb.append("openapi-generator ").append(ImplementationVersion.read()).append('\n');
+        sb.append("plugin ").append(pluginVersion()).append('\n');
+        // lambda 等对象每次都不同, 只取可以稳定序列化的值
+        new TreeMap<>(config.additionalProperties()).forEach((key, value) -> {
+            if (!VOLATILE_OPTIONS.contains(key) && isPlain(value)) {
+                sb.append("option ").append(key).append('=').append(value).append('\n');
+            }
+        });
+        sb.append("typeMapping ").append(new TreeMap<>(config.typeMapping())).append('\n');
+        sb.append("importMapping ").append(new TreeMap<>(config.importMapping())).append('\n');
+        sb.append("schemaMapping ").append(new TreeMap<>(config.schemaMapping())).append('\n');
+        sb.append("nameMapping ").append(new TreeMap<>(config.nameMapping())).append('\n');
+        sb.append("modelNameMapping ").append(new TreeMap<>(config.modelNameMapping())).append('\n');
+        sb.append("info ").append(json(openAPI.getInfo())).append('\n');
+        sb.append("servers ").append(json(openAPI.getServers())).append('\n');
+        if (null != openAPI.getComponents()) {
+            // 非 schema 的 components 可能被任意接口引用, 变化时全部重新生成
+            ObjectNode components = Json.mapper().valueToTree(openAPI.getComponents());
+            components.remove("schemas");
+            sb.append("components ").append(components).append('\n');
+        }
+        sb.append("templates ").append(templatesHash(config)).append('\n');
+        return hash(sb.toString());
+    }
+
+    /**
+     * 自定义模板目录中所有文件的 hash, 使用内置模板时为空
+     */
+    private static String templatesHash(CodegenConfig config) {
+        String dir = config.templateDir();
+        if (null == dir || dir.equals(config.embeddedTemplateDir()) || !new File(dir).isDirectory()) {
+            return "";
+        }
+        try (Stream<Path> stream = Files.walk(Paths.get(dir))) {
+            List<Path> paths = stream.filter(Files::isRegularFile).sorted().collect(Collectors.toList());
+            MessageDigest digest = newDigest();
+            for (Path path : paths) {
+                digest.update(path.toString().getBytes(StandardCharsets.UTF_8));
+                digest.update(Files.readAllBytes(path));
+            }
+            return toHex(digest.digest());
+        } catch (IOException e) {
+            // 无法计算时每次都重新生成
+            return String.valueOf(System.nanoTime());
+        }
+    }
+
+    /**
+     * 插件的版本, 由 Implementation-Version 和插件 class、内置模板的内容 hash 组成.
+     * 只与内容有关, 不同机器上构建或下载的相同插件得到相同的值, 生成缓存可以在多个 CI 任务间共用
+     */
+    static String pluginVersion() {
+        String version = pluginVersion;
+        if (null == version) {
+            String hash;
+            try {
+                hash = contentHash(Paths.get(IncrementalManifest.class.getProtectionDomain().getCodeSource().getLocation().toURI()));
+            } catch (Exception e) {
+                LOGGER.warn("hash plugin content failed: {}", e.getMessage());
+                hash = "unknown";
+            }
+            String implementationVersion = IncrementalManifest.class.getPackage().getImplementationVersion();
+            version = null == implementationVersion ? hash : implementationVersion + "+" + hash;
+            pluginVersion = version;
+        }
+        return version;
+    }
+
+    /**
+     * jar 或 class 目录中文件的路径和内容的 hash, 不包括 META-INF 中与构建环境有关的文件.
+     * jar 中条目的修改时间不参与计算, 同一份源码重新构建得到相同的值
+     */
+    private static String contentHash(Path location) throws IOException {
+        Map<String, byte[]> contents = new TreeMap<>();
+        if (Files.isDirectory(location)) {
+            try (Stream<Path> stream = Files.walk(location)) {
+                for (Path path : stream.filter(Files::isRegularFile).collect(Collectors.toList())) {
+                    contents.put(location.relativize(path).toString().replace(File.separatorChar, '/'), Files.readAllBytes(path));
+                }
+            }
+        } else {
+            try (JarFile jar = new JarFile(location.toFile())) {
+                for (JarEntry entry : Collections.list(jar.entries())) {
+                    if (!entry.isDirectory()) {
+                        try (InputStream in = jar.getInputStream(entry)) {
+                            contents.put(entry.getName(), readAll(in));
+                        }
+                    }
+                }
+            }
+        }
+        MessageDigest digest = newDigest();
+        for (Map.Entry<String, byte[]> entry : contents.entrySet()) {
+            if (entry.getKey().startsWith("META-INF/")) {
+                continue;
+            }
+            digest.update((entry.getKey() + "\n" + entry.getValue().length + "\n").getBytes(StandardCharsets.UTF_8));
+            digest.update(entry.getValue());
+        }
+        return toHex(digest.digest());
+    }
+
+    private static byte[] readAll(InputStream in) throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        byte[] buffer = new byte[8192];
+        int n;
+        while ((n = in.read(buffer)) != -1) {
+            out.write(buffer, 0, n);
+        }
+        return out.toByteArray();
+    }
+
+    private static boolean isPlain(Object value) {
+        if (null == value || value instanceof CharSequence || value instanceof Number || value instanceof Boolean) {
+            return true;
+        }
+        if (value instanceof Collection) {
+            return ((Collection<?>) value).stream().allMatch(IncrementalManifest::isPlain);
+        }
+        if (value instanceof Map) {
+            return ((Map<?, ?>) value).entrySet().stream().allMatch(e -> isPlain(e.getKey()) && isPlain(e.getValue()));
+        }
+        return false;
+    }
+
+    /**
+     * 多个 schema 及其传递依赖的 hash
+     */
+    private static String closureHash(Collection<String> roots, Map<String, String> ownHashes, Map<String, Set<String>> ownRefs) {
+        Set<String> visited = new TreeSet<>();
+        Deque<String> queue = new ArrayDeque<>(roots);
+        while (!queue.isEmpty()) {
+            String name = queue.poll();
+            if (visited.add(name)) {
+                queue.addAll(ownRefs.getOrDefault(name, Collections.emptySet()));
+            }
+        }
+        StringBuilder sb = new StringBuilder();
+        for (String name : visited) {
+            sb.append(name).append(':').append(ownHashes.get(name)).append('\n');
+        }
+        return hash(sb.toString());
+    }
+
+    /**
+     * 节点中引用的 schema 名称, 包括 $ref 和 discriminator.mapping
+     */
+    private static Set<String> schemaRefs(JsonNode node) {
+        Set<String> refs = new TreeSet<>();
+        Deque<JsonNode> queue = new ArrayDeque<>();
+        queue.add(node);
+        while (!queue.isEmpty()) {
+            JsonNode current = queue.poll();
+            if (current.isTextual()) {
+                String text = current.asText();
+                if (text.startsWith(SCHEMA_REF_PREFIX)) {
+                    refs.add(text.substring(SCHEMA_REF_PREFIX.length()));
+                }
+                continue;
+            }
+            Iterator<JsonNode> it = current.elements();
+            while (it.hasNext()) {
+                queue.add(it.next());
+            }
+        }
+        return refs;
+    }
+
+    private static String json(Object value) {
+        JsonNode node = Json.mapper().valueToTree(value);
+        return node.toString();
+    }
+
+    static String hash(String content) {
+        return toHex(newDigest().digest(content.getBytes(StandardCharsets.UTF_8)));
+    }
+
+    static MessageDigest newDigest() {
+        try {
+            return MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    static String toHex(byte[] bytes) {
+        StringBuilder sb = new StringBuilder(bytes.length * 2);
+        for (byte b : bytes) {
+            sb.append(Character.forDigit((b >> 4) & 0xF, 16)).append(Character.forDigit(b & 0xF, 16));
+        }
+        return sb.toString();
+    }
+}
@@ -0,0 +1,79 @@
+package tech.aomi.codegen;
+
+import org.openapitools.codegen.model.ModelMap;
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+
+/**
+ * 模型符号表
+ * 每次生成时基于 allModels 构建一次, 通过 classname 和 importPath 直接定位 model 及其别名、包名
+ */
+public class ModelSymbolTable {
+
+    /**
+     * 构建符号表时使用的模型列表, 用于判断是否需要重建
+     */
+    private final List<ModelMap> source;
+
+    private final int sourceSize;
+
+    private final Map<String, Symbol> byClassname = new HashMap<>();
+
+    private final Map<String, Symbol> byImportPath = new HashMap<>();
+
+    public ModelSymbolTable(List<ModelMap> allModels) {
+        this.source = allModels;
+        this.sourceSize = allModels.size();
+        for (ModelMap model : allModels) {
+            Symbol symbol = new Symbol(model);
+            // 与顺序查找保持一致, 同名时以第一个为准
+            byClassname.putIfAbsent(model.getModel().getClassname(), symbol);
+            byImportPath.putIfAbsent(symbol.importPath, symbol);
+        }
+    }
+
+    /**
+     * 判断符号表是否由指定的模型列表构建
+     */
+    public boolean isBuiltFrom(List<ModelMap> allModels) {
+        return this.source == allModels && this.sourceSize == allModels.size();
+    }
+
+    public Optional<Symbol> findByClassname(String classname) {
+        return Optional.ofNullable(byClassname.get(classname));
+    }
+
+    public Optional<Symbol> findByImportPath(String importPath) {
+        return Optional.ofNullable(byImportPath.get(importPath));
+    }
+
+    public static class Symbol {
+
+        public final ModelMap model;
+
+        /**
+         * model 所在包的导入路径
+         */
+        public final String importPath;
+
+        /**
+         * model 导入时使用的别名
+         */
+        public final String alias;
+
+        /**
+         * model 所在的包名
+         */
+        public final String packageName;
+
+        private Symbol(ModelMap model) {
+            this.model = model;
+            this.importPath = String.valueOf(model.getOrDefault("importPath", ""));
+            this.alias = String.valueOf(model.getOrDefault("alias", ""));
+            this.packageName = String.valueOf(model.getOrDefault("packageName", ""));
+        }
+    }
+}
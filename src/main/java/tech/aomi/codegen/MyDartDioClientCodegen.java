@@ -18,6 +18,7 @@ package tech.aomi.codegen;/*
 import com.google.common.collect.Sets;
 import com.samskivert.mustache.Mustache;
 import com.samskivert.mustache.Template;
+import io.swagger.v3.oas.models.OpenAPI;
 import io.swagger.v3.oas.models.media.Discriminator;
 import io.swagger.v3.oas.models.media.Schema;
 import lombok.Getter;
@@ -26,6 +27,7 @@ import org.apache.commons.lang3.ObjectUtils;
 import org.openapitools.codegen.*;
 import org.openapitools.codegen.CodegenDiscriminator.MappedModel;
 import org.openapitools.codegen.api.TemplatePathLocator;
+import org.openapitools.codegen.api.TemplatingEngineAdapter;
 import org.openapitools.codegen.config.GlobalSettings;
 import org.openapitools.codegen.languages.AbstractDartCodegen;
 import org.openapitools.codegen.meta.GeneratorMetadata;
@@ -46,13 +48,14 @@ import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import java.io.File;
+import java.io.IOException;
 import java.nio.file.Paths;
 import java.util.*;
 import java.util.stream.Collectors;
 
 import static org.openapitools.codegen.utils.StringUtils.underscore;
 
-public class MyDartDioClientCodegen extends AbstractDartCodegen {
+public class MyDartDioClientCodegen extends AbstractDartCodegen implements ReportingCodegen {
 
     private final Logger LOGGER = LoggerFactory.getLogger(MyDartDioClientCodegen.class);
 
@@ -95,6 +98,34 @@ public class MyDartDioClientCodegen extends AbstractDartCodegen {
     @Setter
     private String basePubName;
 
+    /**
+     * 各阶段耗时和计数, 开启 generationReport 后记录
+     */
+    @Getter
+    private final GenerationReport generationReport = new GenerationReport();
+
+    /**
+     * 产生 JFR 事件, 见 {@link FlightRecorderEvents}
+     */
+    @Getter
+    @Setter
+    private boolean jfrEvents = false;
+
+    /**
+     * 只生成选中的接口可达的 model, 见 {@link SchemaPruner}
+     */
+    @Getter
+    @Setter
+    private boolean pruneUnusedSchemas = false;
+
+    /**
+     * rewriteImports 的解析结果, 按 model/接口分区, 每个名称只解析一次
+     */
+    private final NamingCache namingCache = new NamingCache();
+
+    private final BuiltValueSerializerRegistry serializerRegistry =
+            new BuiltValueSerializerRegistry(type -> rewriteImports(Sets.newHashSet(type), true));
+
     public MyDartDioClientCodegen() {
         super();
         libPath = "";
@@ -160,6 +191,9 @@ public class MyDartDioClientCodegen extends AbstractDartCodegen {
 
 
         cliOptions.add(CliOption.newString(BASE_PUB_NAME, "基础pubName"));
+        cliOptions.add(CliOption.newBoolean(GenerationReport.GENERATION_REPORT, "在输出目录的.openapi-generator/generation-report.json中写入各阶段耗时和计数"));
+        cliOptions.add(CliOption.newBoolean(FlightRecorderEvents.JFR_EVENTS, "产生JFR事件(operations、model处理及模板渲染), 用于JMC分析"));
+        cliOptions.add(CliOption.newBoolean(SchemaPruner.PRUNE_UNUSED_SCHEMAS, "只生成选中的接口($ref可达)用到的model, 未使用的schema不生成"));
 
     }
 
@@ -173,9 +207,18 @@ public class MyDartDioClientCodegen extends AbstractDartCodegen {
         return "Generates a Dart Dio client library.";
     }
 
+    @Override
+    public void setTemplatingEngine(TemplatingEngineAdapter templatingEngine) {
+        // 使用进程内共享的已编译模板缓存
+        super.setTemplatingEngine(CachingMustacheEngineAdapter.wrap(templatingEngine, generationReport));
+    }
+
     @Override
     public void processOpts() {
+        long start = System.nanoTime();
         super.processOpts();
+        serializerRegistry.clear();
+        namingCache.clear();
 
         if (!additionalProperties.containsKey(CodegenConstants.SERIALIZATION_LIBRARY)) {
             additionalProperties.put(CodegenConstants.SERIALIZATION_LIBRARY, SERIALIZATION_LIBRARY_DEFAULT);
@@ -222,6 +265,15 @@ public class MyDartDioClientCodegen extends AbstractDartCodegen {
         if (additionalProperties.containsKey(BASE_PUB_NAME)) {
             this.setBasePubName(additionalProperties.get(BASE_PUB_NAME).toString());
         }
+        if (additionalProperties.containsKey(GenerationReport.GENERATION_REPORT)) {
+            this.generationReport.setEnabled(Boolean.parseBoolean(additionalProperties.get(GenerationReport.GENERATION_REPORT).toString()));
+        }
+        if (additionalProperties.containsKey(FlightRecorderEvents.JFR_EVENTS)) {
+            this.setJfrEvents(Boolean.parseBoolean(additionalProperties.get(FlightRecorderEvents.JFR_EVENTS).toString()));
+        }
+        if (additionalProperties.containsKey(SchemaPruner.PRUNE_UNUSED_SCHEMAS)) {
+            this.setPruneUnusedSchemas(Boolean.parseBoolean(additionalProperties.get(SchemaPruner.PRUNE_UNUSED_SCHEMAS).toString()));
+        }
 
         supportingFiles.add(new SupportingFile("pubspec.mustache", "", "pubspec.yaml"));
         supportingFiles.add(new SupportingFile("analysis_options.mustache", "", "analysis_options.yaml"));
@@ -243,6 +295,7 @@ public class MyDartDioClientCodegen extends AbstractDartCodegen {
         configureSerializationLibrary(srcFolder);
         configureEqualityCheckMethod(srcFolder);
         configureDateLibrary(srcFolder);
+        generationReport.recordSince(GenerationReport.PROCESS_OPTS, start);
     }
 
     private void configureSerializationLibrary(String srcFolder) {
@@ -354,6 +407,14 @@ public class MyDartDioClientCodegen extends AbstractDartCodegen {
         }
     }
 
+    @Override
+    public void preprocessOpenAPI(OpenAPI openAPI) {
+        if (pruneUnusedSchemas) {
+            generationReport.increment(GenerationReport.PRUNED_SCHEMAS, SchemaPruner.prune(openAPI, this));
+        }
+        super.preprocessOpenAPI(openAPI);
+    }
+
     @Override
     public String toDefaultValue(Schema schema) {
         if (schema.getDefault() != null) {
@@ -382,9 +443,22 @@ public class MyDartDioClientCodegen extends AbstractDartCodegen {
 
     @Override
     public ModelsMap postProcessModels(ModelsMap objs) {
+        long start = System.nanoTime();
+        FlightRecorderEvents.PostProcessModels event = null;
+        if (jfrEvents) {
+            event = new FlightRecorderEvents.PostProcessModels();
+            event.begin();
+        }
         objs = super.postProcessModels(objs);
         List<ModelMap> models = objs.getModels();
         ProcessUtils.addIndexToProperties(models, 1);
+        generationReport.recordSince(GenerationReport.POST_PROCESS_MODELS, start);
+        generationReport.increment(GenerationReport.MODELS, models.size());
+        if (null != event && event.shouldCommit()) {
+            event.model = models.isEmpty() ? "" : models.get(0).getModel().name;
+            event.models = models.size();
+            event.commit();
+        }
         return objs;
     }
 
@@ -397,13 +471,143 @@ public class MyDartDioClientCodegen extends AbstractDartCodegen {
             for (String directParentName : directParentNames) {
                 if (accumulator.add(directParentName)) {
                     CodegenModel parent = allModels.get(directParentName);
-                    getAncestors(parent, allModels, accumulator);
+                    if (parent != null) {
+                        getAncestors(parent, allModels, accumulator);
+                    }
+                }
+            }
+        }
+    }
+
+    /**
+     * 所有 model 的祖先(allOf 的传递闭包).
+     * 按拓扑顺序先计算父类, 子类合并父类的结果, 每条继承链只遍历一次.
+     * 结果的插入顺序与 getAncestors 的深度优先顺序一致, 生成的属性顺序不变.
+     * 循环继承的 model(及其子类)没有拓扑顺序, 仍用 getAncestors 逐个遍历, 排在结果的最后
+     */
+    private Map<String, Set<String>> getAllAncestors(Map<String, CodegenModel> allModels) {
+        Map<String, Set<String>> closures = new LinkedHashMap<>();
+        // 尚未计算的父类数量
+        Map<String, Integer> pendingParents = new HashMap<>();
+        Map<String, List<String>> children = new HashMap<>();
+        Deque<String> ready = new ArrayDeque<>();
+        for (Map.Entry<String, CodegenModel> entry : allModels.entrySet()) {
+            int count = 0;
+            if (entry.getValue().allOf != null) {
+                for (String parent : entry.getValue().allOf) {
+                    if (allModels.containsKey(parent)) {
+                        count++;
+                        children.computeIfAbsent(parent, k -> new ArrayList<>()).add(entry.getKey());
+                    }
+                }
+            }
+            if (count == 0) {
+                ready.add(entry.getKey());
+            } else {
+                pendingParents.put(entry.getKey(), count);
+            }
+        }
+
+        while (!ready.isEmpty()) {
+            String key = ready.poll();
+            Set<String> closure = new LinkedHashSet<>();
+            Set<String> parents = allModels.get(key).allOf;
+            if (parents != null) {
+                for (String parent : parents) {
+                    if (closure.add(parent)) {
+                        closure.addAll(closures.getOrDefault(parent, Collections.emptySet()));
+                    }
                 }
             }
+            closures.put(key, closure);
+            for (String child : children.getOrDefault(key, Collections.emptyList())) {
+                if (pendingParents.merge(child, -1, Integer::sum) == 0) {
+                    pendingParents.remove(child);
+                    ready.add(child);
+                }
+            }
+        }
+
+        for (String key : pendingParents.keySet()) {
+            Set<String> closure = new LinkedHashSet<>();
+            getAncestors(allModels.get(key), allModels, closure);
+            closures.put(key, closure);
         }
+        return closures;
     }
 
-    private void syncRootTypesWithInnerVars(Map<String, ModelsMap> objs) {
+    /**
+     * 每个 model 的所有祖先的 allVars 属性名, 按 getAllAncestors 的拓扑顺序由父类的结果合并.
+     * 没有新增属性名时直接使用父类的集合, 单继承链上的 model 共用同一个集合, 结果不能修改
+     */
+    private Map<String, Set<String>> getAncestorPropertyNames(Map<String, CodegenModel> allModels, Map<String, Set<String>> closures) {
+        // 自身及祖先的属性名
+        Map<String, Set<String>> selfAndAncestorNames = new HashMap<>();
+        Map<String, Set<String>> ancestorNames = new HashMap<>();
+        for (Map.Entry<String, Set<String>> entry : closures.entrySet()) {
+            String key = entry.getKey();
+            CodegenModel cm = allModels.get(key);
+            Set<String> names = Collections.emptySet();
+            boolean composable = !entry.getValue().contains(key);
+            if (composable && cm.allOf != null) {
+                for (String parent : cm.allOf) {
+                    if (allModels.containsKey(parent) && !selfAndAncestorNames.containsKey(parent)) {
+                        composable = false;
+                        break;
+                    }
+                }
+            }
+            if (composable) {
+                if (cm.allOf != null) {
+                    for (String parent : cm.allOf) {
+                        names = mergeNames(names, selfAndAncestorNames.get(parent));
+                    }
+                }
+            } else {
+                // 循环继承, 或父类在循环继承中
+                Set<String> direct = new HashSet<>();
+                for (String ancestor : entry.getValue()) {
+                    CodegenModel model = allModels.get(ancestor);
+                    if (model != null && !ancestor.equals(key)) {
+                        direct.addAll(allVarNames(model));
+                    }
+                }
+                names = direct;
+            }
+            ancestorNames.put(key, names);
+            selfAndAncestorNames.put(key, mergeNames(names, allVarNames(cm)));
+        }
+        return ancestorNames;
+    }
+
+    private static Set<String> allVarNames(CodegenModel model) {
+        List<CodegenProperty> allVars = ObjectUtils.firstNonNull(model.getAllVars(), new ArrayList<>());
+        Set<String> names = new HashSet<>();
+        for (CodegenProperty prop : allVars) {
+            names.add(prop.getName());
+        }
+        return names;
+    }
+
+    /**
+     * 合并两个属性名集合, 其中一个包含另一个时直接返回, 不修改参数
+     */
+    private static Set<String> mergeNames(Set<String> names, Set<String> more) {
+        if (null == more || names.containsAll(more)) {
+            return names;
+        }
+        if (more.containsAll(names)) {
+            return more;
+        }
+        Set<String> merged = new HashSet<>(names);
+        merged.addAll(more);
+        return merged;
+    }
+
+    /**
+     * 以 classname 为 key 的所有 model, adaptToDartInheritance 和 syncRootTypesWithInnerVars 共用
+     */
+    private Map<String, CodegenModel> indexModels(Map<String, ModelsMap> objs) {
         Map<String, CodegenModel> allModels = new HashMap<>();
         for (ModelsMap modelsEntries : objs.values()) {
             for (ModelMap modelsMap : modelsEntries.getModels()) {
@@ -411,7 +615,10 @@ public class MyDartDioClientCodegen extends AbstractDartCodegen {
                 allModels.put(model.getClassname(), model);
             }
         }
+        return allModels;
+    }
 
+    private void syncRootTypesWithInnerVars(Map<String, CodegenModel> allModels) {
         for (CodegenModel model : allModels.values()) {
             syncRootTypesWithInnerVars(allModels, model);
         }
@@ -449,25 +656,20 @@ public class MyDartDioClientCodegen extends AbstractDartCodegen {
     private final String kParentDiscriminator = "x-parent-discriminator";
 
     // adapts codegen models and property to dart rules of inheritance
-    private void adaptToDartInheritance(Map<String, ModelsMap> objs) {
-        // get all models
-        Map<String, CodegenModel> allModels = new HashMap<>();
-        for (ModelsMap modelsEntries : objs.values()) {
-            for (ModelMap modelsMap : modelsEntries.getModels()) {
-                CodegenModel model = modelsMap.getModel();
-                allModels.put(model.getClassname(), model);
-            }
-        }
+    private void adaptToDartInheritance(Map<String, CodegenModel> allModels) {
+        Map<String, Set<String>> closures = getAllAncestors(allModels);
+        Map<String, Set<String>> ancestorPropertyNames = getAncestorPropertyNames(allModels, closures);
 
         // all ancestors
         Set<String> allAncestorsForAllModelsFlat = new HashSet<>();
         // maps a model to its ancestors
         Map<String, Set<String>> allAncestorsForAllModels = new HashMap<>();
         for (java.util.Map.Entry<String, CodegenModel> cm : allModels.entrySet()) {
+            // 按深度优先顺序逐个加入, 遍历顺序与逐个 model 调用 getAncestors 时相同
             Set<String> allAncestors = new HashSet<>();
-            // get all ancestors
-            // TODO: optimize this logic ?
-            getAncestors(cm.getValue(), allModels, allAncestors);
+            for (String ancestor : closures.get(cm.getKey())) {
+                allAncestors.add(ancestor);
+            }
             // just in case, a model can't be its own ancestor
             allAncestors.remove(cm.getKey());
 
@@ -531,12 +733,13 @@ public class MyDartDioClientCodegen extends AbstractDartCodegen {
             // get direct parents
             // Set<String> directParentNames = cm.allOf == null ? new HashSet<>() :
             // cm.allOf;
+            // 祖先的属性名已经在 ancestorPropertyNames 中, 这里只处理 oneOf/anyOf
+            Set<String> ancestorProperties = ancestorPropertyNames.get(key);
             Set<String> compositeProperties = new HashSet<>();
 
             Set<String> compositeModelNames = new HashSet<String>();
             compositeModelNames.addAll(ObjectUtils.firstNonNull(cm.oneOf, new HashSet<>()));
             compositeModelNames.addAll(ObjectUtils.firstNonNull(cm.anyOf, new HashSet<>()));
-            compositeModelNames.addAll(allAncestors);
 
             for (String compositeModelName : compositeModelNames) {
                 CodegenModel model = allModels.get(compositeModelName);
@@ -573,7 +776,7 @@ public class MyDartDioClientCodegen extends AbstractDartCodegen {
             }
             for (CodegenProperty p : cm.getVars()) {
                 p.isInherited = ancestorOnlyProperties.containsKey(p.getName());
-                if (!p.isInherited && !compositeProperties.contains(p.getName())) {
+                if (!p.isInherited && !ancestorProperties.contains(p.getName()) && !compositeProperties.contains(p.getName())) {
                     selfOnlyProperties.put(p.getName(), p);
                 }
             }
@@ -621,10 +824,12 @@ public class MyDartDioClientCodegen extends AbstractDartCodegen {
 
     @Override
     public Map<String, ModelsMap> postProcessAllModels(Map<String, ModelsMap> objs) {
+        long start = System.nanoTime();
         objs = super.postProcessAllModels(objs);
         if (SERIALIZATION_LIBRARY_BUILT_VALUE.equals(library)) {
-            adaptToDartInheritance(objs);
-            syncRootTypesWithInnerVars(objs);
+            Map<String, CodegenModel> allModels = indexModels(objs);
+            adaptToDartInheritance(allModels);
+            syncRootTypesWithInnerVars(allModels);
         }
 
         // loop through models to update the imports
@@ -636,6 +841,7 @@ public class MyDartDioClientCodegen extends AbstractDartCodegen {
             }
         }
 
+        generationReport.recordSince(GenerationReport.POST_PROCESS_ALL_MODELS, start);
         return objs;
     }
 
@@ -667,6 +873,12 @@ public class MyDartDioClientCodegen extends AbstractDartCodegen {
 
     @Override
     public OperationsMap postProcessOperationsWithModels(OperationsMap objs, List<ModelMap> allModels) {
+        long start = System.nanoTime();
+        FlightRecorderEvents.PostProcessOperations event = null;
+        if (jfrEvents) {
+            event = new FlightRecorderEvents.PostProcessOperations();
+            event.begin();
+        }
         super.postProcessOperationsWithModels(objs, allModels);
         OperationMap operations = objs.getOperations();
         List<CodegenOperation> operationList = operations.getOperation();
@@ -751,15 +963,44 @@ public class MyDartDioClientCodegen extends AbstractDartCodegen {
         // for some reason "import" structure is changed ..
         objs.put("imports", resultImports.stream().sorted().collect(Collectors.toList()));
 
+        String tag = operationList.isEmpty() || null == operationList.get(0).baseName
+                ? operations.getClassname() : operationList.get(0).baseName;
+        if (null != event && event.shouldCommit()) {
+            event.tag = tag;
+            event.operations = operationList.size();
+            event.commit();
+        }
+        if (generationReport.isEnabled()) {
+            generationReport.recordSince(GenerationReport.POST_PROCESS_OPERATIONS + tag, start);
+            generationReport.increment(GenerationReport.OPERATIONS, operationList.size());
+        }
+        return objs;
+    }
+
+    @Override
+    public void postProcess() {
+        LOGGER.debug("import cache hits: {}, misses: {}", namingCache.getHits(), namingCache.getMisses());
+        if (generationReport.isEnabled()) {
+            generationReport.increment(GenerationReport.NAMING_CACHE_HITS, namingCache.getHits());
+            generationReport.increment(GenerationReport.NAMING_CACHE_MISSES, namingCache.getMisses());
+            try {
+                generationReport.write(this);
+            } catch (IOException e) {
+                LOGGER.warn("write generation report failed: {}", e.getMessage());
+            }
+        }
+        super.postProcess();
+    }
+
+    @Override
+    public Map<String, Object> postProcessSupportingFileData(Map<String, Object> objs) {
+        objs = super.postProcessSupportingFileData(objs);
+        serializerRegistry.publish(objs);
         return objs;
     }
 
     private void addBuiltValueSerializerImport(String type) {
-        additionalProperties.compute("builtValueSerializerImports", (k, v) -> {
-            Set<String> imports = v == null ? Sets.newHashSet() : ((Set<String>) v);
-            imports.addAll(rewriteImports(Sets.newHashSet(type), true));
-            return imports;
-        });
+        serializerRegistry.addImport(type);
     }
 
     /**
@@ -768,44 +1009,52 @@ public class MyDartDioClientCodegen extends AbstractDartCodegen {
      * @param serializer
      */
     private void addBuiltValueSerializer(BuiltValueSerializer serializer) {
-        additionalProperties.compute("builtValueSerializers", (k, v) -> {
-            Set<BuiltValueSerializer> serializers = v == null ? Sets.newHashSet() : ((Set<BuiltValueSerializer>) v);
-            serializers.add(serializer);
-            return serializers;
-        });
+        serializerRegistry.addSerializer(serializer);
     }
 
     private Set<String> rewriteImports(Set<String> originalImports, boolean isModel) {
+        generationReport.increment(GenerationReport.IMPORTS, originalImports.size());
         Set<String> resultImports = Sets.newHashSet();
+        String region = isModel ? NamingCache.DART_MODEL_IMPORT : NamingCache.DART_OPERATION_IMPORT;
         for (String modelImport : originalImports) {
-            if (modelImport.startsWith("BuiltList", 0)) {
-                modelImport = "BuiltList";
-            } else if (modelImport.startsWith("BuiltSet", 0)) {
-                modelImport = "BuiltSet";
-            } else if (modelImport.startsWith("BuiltMap", 0)) {
-                modelImport = "BuiltMap";
-            }
-
-            if (imports.containsKey(modelImport)) {
-                String i = imports.get(modelImport);
-                if (Objects.equals(i, DIO_IMPORT) && !isModel) {
-                    // Don't add imports to operations that are already imported
-                    continue;
-                }
+            String i = namingCache.get(region, modelImport, key -> resolveImport(key, isModel));
+            if (null != i) {
                 resultImports.add(i);
-            } else if (importMapping().containsKey(modelImport)) {
-                resultImports.add(importMapping().get(modelImport));
-            } else if (modelImport.startsWith("dart:")) { // import dart:* directly
-                resultImports.add(modelImport);
-            } else if (modelImport.startsWith("package:")) { // e.g. package:openapi/src/model/child.dart
-                resultImports.add(modelImport);
-            } else {
-                resultImports.add("package:" + Paths.get(basePubName, pubName, modelPackage(), underscore(modelImport) + ".dart"));
             }
         }
         return resultImports;
     }
 
+    /**
+     * 将名称解析为 dart import, 接口中已经导入的 dio 返回 null
+     */
+    private String resolveImport(String modelImport, boolean isModel) {
+        if (modelImport.startsWith("BuiltList", 0)) {
+            modelImport = "BuiltList";
+        } else if (modelImport.startsWith("BuiltSet", 0)) {
+            modelImport = "BuiltSet";
+        } else if (modelImport.startsWith("BuiltMap", 0)) {
+            modelImport = "BuiltMap";
+        }
+
+        if (imports.containsKey(modelImport)) {
+            String i = imports.get(modelImport);
+            if (Objects.equals(i, DIO_IMPORT) && !isModel) {
+                // Don't add imports to operations that are already imported
+                return null;
+            }
+            return i;
+        } else if (importMapping().containsKey(modelImport)) {
+            return importMapping().get(modelImport);
+        } else if (modelImport.startsWith("dart:")) { // import dart:* directly
+            return modelImport;
+        } else if (modelImport.startsWith("package:")) { // e.g. package:openapi/src/model/child.dart
+            return modelImport;
+        } else {
+            return "package:" + Paths.get(basePubName, pubName, modelPackage(), underscore(modelImport) + ".dart");
+        }
+    }
+
     static class BuiltValueSerializer {
 
         final boolean isArray;
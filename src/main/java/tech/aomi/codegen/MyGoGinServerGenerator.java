@@ -8,8 +8,10 @@ import org.openapitools.codegen.model.OperationsMap;
 
 import java.io.File;
 import java.nio.file.Paths;
+import java.util.Collections;
 import java.util.List;
 import java.util.Map;
+import java.util.Set;
 import java.util.stream.Collectors;
 
 public class MyGoGinServerGenerator extends AbstractGoWebServerGenerator {
@@ -20,6 +22,7 @@ public class MyGoGinServerGenerator extends AbstractGoWebServerGenerator {
 
     public MyGoGinServerGenerator() {
         super();
+        validTagBuilder = ValidTagBuilder.GIN;
         routerPackage = "main";
 
         /*
@@ -67,6 +70,11 @@ public class MyGoGinServerGenerator extends AbstractGoWebServerGenerator {
         supportingFiles.add(new SupportingFile("routers.mustache", this.routerPackage, "routers.go"));
     }
 
+    @Override
+    public Set<String> routeSupportingTemplates() {
+        return Collections.singleton("routers.mustache");
+    }
+
     @Override
     public OperationsMap postProcessOperationsWithModels(OperationsMap objs, List<ModelMap> allModels) {
         OperationsMap operationsMap = super.postProcessOperationsWithModels(objs, allModels);
@@ -95,7 +103,7 @@ public class MyGoGinServerGenerator extends AbstractGoWebServerGenerator {
         if (null != t && !t.isEmpty()) {
             dir += t.replace('/', File.separatorChar) + File.separatorChar;
         }
-        dir = dir.replaceAll("-", "_");
+        dir = dir.replace('-', '_');
 
         String suffix = this.apiTemplateFiles().get(templateName);
         return Paths.get(outputFolder, dir, this.toApiFilename(tag) + suffix).toString();
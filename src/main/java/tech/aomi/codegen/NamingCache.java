@@ -0,0 +1,113 @@
+package tech.aomi.codegen;
+
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Function;
+
+/**
+ * 命名缓存
+ * 同一次生成中, 相同的输入只计算一次. 按用途分区缓存(别名、包名、导入路径等)
+ * 线程安全, 并行处理 model 时共用. 并发时同一个 key 可能重复计算, 计算结果相同, 以先写入的为准
+ */
+public class NamingCache {
+
+    public static final String ALIAS = "alias";
+    public static final String MODEL_ALIAS = "modelAlias";
+    public static final String MODEL_PKG_NAME = "modelPkgName";
+    public static final String MODEL_IMPORT = "modelImport";
+    public static final String FOLDER_ALIAS = "folderAlias";
+    public static final String FOLDER_PKG_NAME = "folderPkgName";
+    public static final String DART_MODEL_IMPORT = "dartModelImport";
+    public static final String DART_OPERATION_IMPORT = "dartOperationImport";
+
+    /**
+     * ConcurrentHashMap 不能保存 null, 使用该值代替
+     */
+    private static final String NULL = new String("");
+
+    private final ConcurrentMap<String, ConcurrentMap<String, String>> regions = new ConcurrentHashMap<>();
+
+    /**
+     * typeMapping 的值集合, 用于反向查找
+     */
+    private volatile TypeMappingValues typeMappingValues;
+
+    private final LongAdder hits = new LongAdder();
+
+    private final LongAdder misses = new LongAdder();
+
+    /**
+     * 获取缓存值, 不存在时使用 loader 计算并缓存(包括 null 值)
+     */
+    public String get(String region, String key, Function<String, String> loader) {
+        ConcurrentMap<String, String> cache = regions.computeIfAbsent(region, k -> new ConcurrentHashMap<>());
+        String value = cache.get(key);
+        if (null != value) {
+            hits.increment();
+            return unwrap(value);
+        }
+        misses.increment();
+        // loader 中可能再次访问缓存, 不能使用 computeIfAbsent
+        value = loader.apply(key);
+        String exists = cache.putIfAbsent(key, null == value ? NULL : value);
+        return null == exists ? value : unwrap(exists);
+    }
+
+    private static String unwrap(String value) {
+        return NULL == value ? null : value;
+    }
+
+    /**
+     * 判断 type 是否是 typeMapping 中的某个值
+     */
+    public boolean isTypeMappingValue(Map<String, String> typeMapping, String type) {
+        TypeMappingValues values = this.typeMappingValues;
+        if (null == values || values.typeMapping != typeMapping || values.size != typeMapping.size()) {
+            values = new TypeMappingValues(typeMapping);
+            this.typeMappingValues = values;
+        }
+        return values.values.contains(type);
+    }
+
+    public long getHits() {
+        return hits.sum();
+    }
+
+    public long getMisses() {
+        return misses.sum();
+    }
+
+    /**
+     * 清空缓存, 开始新的一次生成
+     */
+    public void clear() {
+        regions.clear();
+        typeMappingValues = null;
+        hits.reset();
+        misses.reset();
+    }
+
+    @Override
+    public String toString() {
+        return "NamingCache{hits=" + getHits() + ", misses=" + getMisses() + "}";
+    }
+
+    /**
+     * 构建时的 typeMapping 及其值集合, 整体替换保证并发读取时一致
+     */
+    private static final class TypeMappingValues {
+        private final Map<String, String> typeMapping;
+        private final int size;
+        private final Set<String> values;
+
+        private TypeMappingValues(Map<String, String> typeMapping) {
+            this.typeMapping = typeMapping;
+            this.size = typeMapping.size();
+            this.values = new HashSet<>(typeMapping.values());
+        }
+    }
+}
@@ -0,0 +1,564 @@
+package tech.aomi.codegen;
+
+import lombok.Getter;
+import lombok.Setter;
+import org.openapitools.codegen.CodegenConfig;
+import org.openapitools.codegen.DefaultGenerator;
+import org.openapitools.codegen.DryRunTemplateManager;
+import org.openapitools.codegen.api.TemplateProcessor;
+import org.openapitools.codegen.api.TemplatingEngineAdapter;
+import org.openapitools.codegen.api.TemplatingExecutor;
+import org.openapitools.codegen.model.ModelsMap;
+import org.openapitools.codegen.model.OperationsMap;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.Collectors;
+
+/**
+ * 并行生成文件
+ * model 和 api 文件的渲染、写入由线程池并发执行, 其余文件(supportingFiles 等)仍按顺序生成.
+ * 开始处理下一类文件前等待上一类全部完成, 后续阶段修改数据时不会影响正在渲染的文件.
+ * 开启了 enablePostProcessFile 或 dryRun 时全部按顺序生成.
+ * 解析文档、处理 model/operation 数据仍在调用线程中执行, 加速比受这部分耗时的占比限制.
+ * <p>
+ * 开启增量生成(incremental)后, 根据输出目录中的 {@link IncrementalManifest} 跳过输入没有变化的文件.
+ * 开启 skipUnchanged 后, 渲染结果与已有文件完全相同时不重新写入, 文件的修改时间保持不变.
+ * 效果与上游的 enableMinimalUpdate(命令行 --minimal-update)相同, 使用标准的 openapi-generator 命令行或 Maven 插件时直接开启它即可.
+ * 上游的实现先把每个文件完整写入 .tmp 文件, 再把两个文件全部读入内存比较; 这里直接比较渲染结果与已有文件,
+ * 长度不同时不读取文件, 内容相同时没有任何写入. 配置了 enableMinimalUpdate 时同样使用这里的比较方式.
+ * 生成器开启了 {@link GenerationReport} 时, 额外记录写入文件的耗时; 开启了 jfrEvents 时每个文件产生一个
+ * {@link FlightRecorderEvents.RenderTemplate} 事件.
+ * <p>
+ * 使用方式与 DefaultGenerator 一致:
+ * new ParallelGenerator(8).opts(clientOptInput).generate();
+ */
+public class ParallelGenerator extends DefaultGenerator {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(ParallelGenerator.class);
+
+    /**
+     * 可以并行生成的文件类型, 对应 processTemplateToFile 的 skippedByOption
+     */
+    private static final Set<String> PARALLEL_CATEGORIES = Collections.unmodifiableSet(new HashSet<>(Arrays.asList(
+            "models", "apis"
+    )));
+
+    /**
+     * 耗时汇总中列出的最慢文件数量
+     */
+    private static final int SLOWEST_FILES = 10;
+
+    /**
+     * 比较已有文件时每次读取的字节数
+     */
+    private static final int COMPARE_BUFFER_SIZE = 64 * 1024;
+
+    /**
+     * 并行线程数
+     */
+    @Getter
+    @Setter
+    private int workers;
+
+    /**
+     * 增量生成, 输入没有变化的 model/api/文档/supportingFiles 不重新生成
+     */
+    @Getter
+    @Setter
+    private boolean incremental;
+
+    /**
+     * 上一次生成的清单, 不存在时为 null
+     */
+    private IncrementalManifest previousManifest;
+
+    /**
+     * 本次生成的清单, 在第一次生成文件时计算
+     */
+    private IncrementalManifest currentManifest;
+
+    /**
+     * api 名称 -> tag
+     */
+    private Map<String, String> apiTags;
+
+    /**
+     * 增量生成时跳过的文件数量
+     */
+    @Getter
+    private int skippedFiles;
+
+    /**
+     * 渲染结果与已有文件相同时不写入, 与 enableMinimalUpdate 任一开启即可
+     */
+    @Setter
+    private boolean skipUnchanged;
+
+    /**
+     * skipUnchanged 模式下写入的文件数量
+     */
+    private final AtomicInteger writtenFiles = new AtomicInteger();
+
+    /**
+     * skipUnchanged 模式下内容相同没有写入的文件数量
+     */
+    private final AtomicInteger unchangedFiles = new AtomicInteger();
+
+    /**
+     * 本次生成每个文件的耗时
+     */
+    private final ConcurrentLinkedQueue<FileTiming> timings = new ConcurrentLinkedQueue<>();
+
+    private final List<Future<?>> pending = new ArrayList<>();
+
+    private ExecutorService executor;
+
+    private DeferredTemplateProcessor deferredProcessor;
+
+    /**
+     * 当前正在并行生成的文件类型
+     */
+    private String pendingCategory;
+
+    /**
+     * 当前 processTemplateToFile 调用的文件类型
+     */
+    private String currentCategory;
+
+    /**
+     * 当前的 processTemplateToFile 调用是否并行写入
+     */
+    private boolean deferWrite;
+
+    public ParallelGenerator() {
+        this(Runtime.getRuntime().availableProcessors());
+    }
+
+    public ParallelGenerator(int workers) {
+        super();
+        this.workers = Math.max(1, workers);
+    }
+
+    @Override
+    public List<File> generate() {
+        timings.clear();
+        skippedFiles = 0;
+        writtenFiles.set(0);
+        unchangedFiles.set(0);
+        previousManifest = null;
+        currentManifest = null;
+        apiTags = null;
+        long start = System.nanoTime();
+        executor = Executors.newFixedThreadPool(workers, new RenderThreadFactory());
+        boolean success = false;
+        try {
+            // 以硬链接从生成缓存恢复的文件先替换为独立的副本, 上游原地写入时不会修改缓存条目
+            GenerationCache.unlinkShared(Paths.get(config.getOutputDir()));
+            List<File> files = super.generate();
+            // 生成器在 postProcess 中写入报告, 此时仍在并行写入的文件完成后重新写入
+            boolean late = !pending.isEmpty();
+            awaitPending();
+            GenerationReport report = GenerationReport.of(config);
+            if (late && null != report) {
+                report.write(config);
+            }
+            if (null != currentManifest) {
+                currentManifest.write(config.getOutputDir());
+            }
+            success = true;
+            return files;
+        } catch (IOException e) {
+            throw new RuntimeException(e);
+        } finally {
+            if (!success) {
+                pending.forEach(future -> future.cancel(true));
+                pending.clear();
+            }
+            executor.shutdown();
+            executor = null;
+            deferredProcessor = null;
+            pendingCategory = null;
+            currentCategory = null;
+            logTimings(System.nanoTime() - start);
+        }
+    }
+
+    @Override
+    protected File processTemplateToFile(Map<String, Object> templateData, String templateName, String outputFilename, boolean shouldGenerate, String skippedByOption) throws IOException {
+        String key = incrementalKey(templateData, templateName, skippedByOption);
+        File target = new File(outputFilename.replaceAll("//", "/").replace('/', File.separatorChar));
+        if (null != key && shouldGenerate && this.ignoreProcessor.allowsFile(target) && target.isFile()
+                && null != previousManifest && key.equals(previousManifest.getFiles().get(relativePath(target)))) {
+            currentManifest.getFiles().put(relativePath(target), key);
+            skippedFiles++;
+            // 与 TemplateManager.writeToFile 的返回值一致, 文件仍然记录在 FILES 中
+            return Paths.get(target.getPath()).toFile();
+        }
+
+        File written = processTemplateToFileNow(templateData, templateName, outputFilename, shouldGenerate, skippedByOption);
+        if (null != key && null != written) {
+            currentManifest.getFiles().put(relativePath(target), key);
+        }
+        return written;
+    }
+
+    private File processTemplateToFileNow(Map<String, Object> templateData, String templateName, String outputFilename, boolean shouldGenerate, String skippedByOption) throws IOException {
+        boolean parallel = isParallel(skippedByOption);
+        if (!parallel || !skippedByOption.equals(pendingCategory)) {
+            awaitPending();
+        }
+        if (this.templateProcessor != deferredProcessor && !(this.templateProcessor instanceof DryRunTemplateManager)) {
+            // templateProcessor 在每次 generate 时重新创建
+            deferredProcessor = new DeferredTemplateProcessor(this.templateProcessor);
+            this.templateProcessor = deferredProcessor;
+        }
+        if (parallel) {
+            pendingCategory = skippedByOption;
+        }
+        currentCategory = skippedByOption;
+        deferWrite = parallel;
+        try {
+            return super.processTemplateToFile(templateData, templateName, outputFilename, shouldGenerate, skippedByOption);
+        } finally {
+            currentCategory = null;
+            deferWrite = false;
+        }
+    }
+
+    /**
+     * 文件的输入 hash, 不支持增量生成的文件返回 null
+     */
+    private String incrementalKey(Map<String, Object> templateData, String templateName, String category) {
+        if (!incremental || this.templateProcessor instanceof DryRunTemplateManager) {
+            return null;
+        }
+        if (null == currentManifest) {
+            currentManifest = IncrementalManifest.build(this.openAPI, config);
+            previousManifest = IncrementalManifest.read(config.getOutputDir());
+            apiTags = new HashMap<>();
+            currentManifest.getTags().keySet().forEach(tag -> apiTags.put(config.toApiName(tag), tag));
+        }
+        switch (category) {
+            case "models":
+            case "modelDocs":
+                if (templateData instanceof ModelsMap && ((ModelsMap) templateData).getModels().size() == 1) {
+                    return currentManifest.modelKey(((ModelsMap) templateData).getModels().get(0).getModel().name);
+                }
+                return null;
+            case "apis":
+            case "apiDocs":
+                if (templateData instanceof OperationsMap && null != ((OperationsMap) templateData).getOperations()) {
+                    String tag = apiTags.get(((OperationsMap) templateData).getOperations().getClassname());
+                    return null == tag ? null : currentManifest.apiKey(tag);
+                }
+                return null;
+            case "supportingFiles":
+                if (config instanceof IncrementalCodegen
+                        && ((IncrementalCodegen) config).routeSupportingTemplates().contains(templateName)) {
+                    return currentManifest.routeKey();
+                }
+                return currentManifest.supportingKey();
+            default:
+                return null;
+        }
+    }
+
+    private String relativePath(File target) {
+        Path outDir = Paths.get(config.getOutputDir()).toAbsolutePath().normalize();
+        return outDir.relativize(target.toPath().toAbsolutePath().normalize()).toString().replace(File.separatorChar, '/');
+    }
+
+    private boolean isParallel(String category) {
+        return workers > 1
+                && null != executor
+                && PARALLEL_CATEGORIES.contains(category)
+                && !config.isEnablePostProcessFile()
+                && !(this.templateProcessor instanceof DryRunTemplateManager);
+    }
+
+    /**
+     * 等待所有并行生成的文件完成
+     */
+    private void awaitPending() throws IOException {
+        if (pending.isEmpty()) {
+            return;
+        }
+        try {
+            for (Future<?> future : pending) {
+                future.get();
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IOException("Interrupted while writing " + pendingCategory, e);
+        } catch (ExecutionException e) {
+            Throwable cause = e.getCause();
+            if (cause instanceof IOException) {
+                throw (IOException) cause;
+            }
+            if (cause instanceof RuntimeException) {
+                throw (RuntimeException) cause;
+            }
+            throw new RuntimeException(cause);
+        } finally {
+            pending.clear();
+            pendingCategory = null;
+        }
+    }
+
+    /**
+     * opts 设置的生成器配置, 代替已废弃的 ClientOptInput.getConfig()
+     */
+    public CodegenConfig getConfig() {
+        return config;
+    }
+
+    public boolean isSkipUnchanged() {
+        return skipUnchanged || (null != config && config.isEnableMinimalUpdate());
+    }
+
+    public int getWrittenFiles() {
+        return writtenFiles.get();
+    }
+
+    public int getUnchangedFiles() {
+        return unchangedFiles.get();
+    }
+
+    /**
+     * 文件内容是否与 contents 完全相同, 按块读取比较, 长度不同时不读取文件
+     */
+    static boolean sameContent(File file, byte[] contents) throws IOException {
+        if (!file.isFile() || file.length() != contents.length) {
+            return false;
+        }
+        byte[] buffer = new byte[Math.min(COMPARE_BUFFER_SIZE, Math.max(1, contents.length))];
+        int offset = 0;
+        try (InputStream in = Files.newInputStream(file.toPath())) {
+            int n;
+            while ((n = in.read(buffer)) > 0) {
+                if (offset + n > contents.length) {
+                    return false;
+                }
+                for (int i = 0; i < n; i++) {
+                    if (buffer[i] != contents[offset + i]) {
+                        return false;
+                    }
+                }
+                offset += n;
+            }
+        }
+        return offset == contents.length;
+    }
+
+    /**
+     * 本次生成每个文件的耗时, 按生成完成的顺序
+     */
+    public List<FileTiming> getTimings() {
+        return new ArrayList<>(timings);
+    }
+
+    private void logTimings(long wallNanos) {
+        if (isSkipUnchanged()) {
+            LOGGER.info("skipUnchanged: {} files written, {} unchanged files skipped", writtenFiles.get(), unchangedFiles.get());
+        }
+        if (timings.isEmpty()) {
+            if (incremental) {
+                LOGGER.info("incremental: all {} files unchanged, {} ms", skippedFiles, wallNanos / 1_000_000);
+            }
+            return;
+        }
+        List<FileTiming> list = getTimings();
+        long total = list.stream().mapToLong(FileTiming::getNanos).sum();
+        LOGGER.info("generated {} files in {} ms with {} workers, total render time {} ms",
+                list.size(), wallNanos / 1_000_000, workers, total / 1_000_000);
+        if (incremental) {
+            LOGGER.info("  incremental: {} unchanged files skipped", skippedFiles);
+        }
+
+        Map<String, List<FileTiming>> byCategory = list.stream()
+                .collect(Collectors.groupingBy(FileTiming::getCategory));
+        byCategory.keySet().stream().sorted().forEach(category -> {
+            List<FileTiming> items = byCategory.get(category);
+            long sum = items.stream().mapToLong(FileTiming::getNanos).sum();
+            LOGGER.info("  {}: {} files, total {} ms, avg {} us",
+                    category, items.size(), sum / 1_000_000, sum / items.size() / 1_000);
+        });
+
+        list.sort(Comparator.comparingLong(FileTiming::getNanos).reversed());
+        LOGGER.info("  slowest files:");
+        list.stream().limit(SLOWEST_FILES).forEach(t -> LOGGER.info("    {} us {}", t.getNanos() / 1_000, t.getFile()));
+        if (LOGGER.isDebugEnabled()) {
+            list.forEach(t -> LOGGER.debug("  {} {} us {}", t.getCategory(), t.getNanos() / 1_000, t.getFile()));
+        }
+    }
+
+    /**
+     * 单个文件的生成耗时
+     */
+    @Getter
+    public static class FileTiming {
+
+        /**
+         * 文件类型: models, apis, supportingFiles 等
+         */
+        private final String category;
+
+        private final String file;
+
+        /**
+         * 渲染加写入的耗时
+         */
+        private final long nanos;
+
+        public FileTiming(String category, String file, long nanos) {
+            this.category = category;
+            this.file = file;
+            this.nanos = nanos;
+        }
+    }
+
+    /**
+     * 并行模式下提交到线程池写入, 其它情况直接写入并记录耗时.
+     * skipUnchanged 模式下先渲染为字节, 与已有文件相同时不写入
+     */
+    private class DeferredTemplateProcessor implements TemplateProcessor {
+
+        private final TemplateProcessor delegate;
+
+        private DeferredTemplateProcessor(TemplateProcessor delegate) {
+            this.delegate = delegate;
+        }
+
+        @Override
+        public File write(Map<String, Object> data, String template, File target) throws IOException {
+            String category = null == currentCategory ? "other" : currentCategory;
+            if (!deferWrite) {
+                return timedWrite(category, data, template, target);
+            }
+            pending.add(executor.submit(() -> {
+                timedWrite(category, data, template, target);
+                return null;
+            }));
+            // 与 TemplateManager.writeToFile 的返回值一致
+            return Paths.get(target.getPath()).toFile();
+        }
+
+        private File timedWrite(String category, Map<String, Object> data, String template, File target) throws IOException {
+            FlightRecorderEvents.RenderTemplate event = null;
+            if (FlightRecorderEvents.isEnabled(config)) {
+                event = new FlightRecorderEvents.RenderTemplate();
+                event.begin();
+            }
+            long start = System.nanoTime();
+            File file = render(data, template, target);
+            timings.add(new FileTiming(category, target.getPath(), System.nanoTime() - start));
+            if (null != event && event.shouldCommit()) {
+                event.template = template;
+                event.file = target.getPath();
+                event.category = category;
+                event.bytes = target.length();
+                event.commit();
+            }
+            return file;
+        }
+
+        private File render(Map<String, Object> data, String template, File target) throws IOException {
+            TemplatingEngineAdapter engine = config.getTemplatingEngine();
+            GenerationReport report = GenerationReport.of(config);
+            boolean skipUnchanged = isSkipUnchanged();
+            if (!(skipUnchanged || null != report) || !(delegate instanceof TemplatingExecutor) || null == engine || !engine.handlesFile(template)) {
+                // 非模板文件直接复制
+                long start = System.nanoTime();
+                File file = delegate.write(data, template, target);
+                if (null != report) {
+                    report.recordSince(GenerationReport.WRITE, start);
+                }
+                return file;
+            }
+            // 与 TemplateManager.write 一致, 分开渲染和写入
+            String content = engine.compileTemplate((TemplatingExecutor) delegate, data, template);
+            byte[] bytes = content.getBytes(StandardCharsets.UTF_8);
+            return skipUnchanged ? writeIfChanged(target.getPath(), bytes) : timedWriteToFile(target.getPath(), bytes);
+        }
+
+        private File writeIfChanged(String filename, byte[] contents) throws IOException {
+            File file = Paths.get(filename).toFile();
+            if (sameContent(file, contents)) {
+                unchangedFiles.incrementAndGet();
+                return file;
+            }
+            writtenFiles.incrementAndGet();
+            return timedWriteToFile(filename, contents);
+        }
+
+        private File timedWriteToFile(String filename, byte[] contents) throws IOException {
+            long start = System.nanoTime();
+            File file = delegate.writeToFile(filename, contents);
+            GenerationReport report = GenerationReport.of(config);
+            if (null != report) {
+                report.recordSince(GenerationReport.WRITE, start);
+            }
+            return file;
+        }
+
+        @Override
+        public File writeToFile(String filename, byte[] contents) throws IOException {
+            awaitPending();
+            if (isSkipUnchanged()) {
+                return writeIfChanged(filename, contents);
+            }
+            return timedWriteToFile(filename, contents);
+        }
+
+        @Override
+        public void ignore(Path path, String context) {
+            delegate.ignore(path, context);
+        }
+
+        @Override
+        public void skip(Path path, String context) {
+            delegate.skip(path, context);
+        }
+
+        @Override
+        public void error(Path path, String context) {
+            delegate.error(path, context);
+        }
+    }
+
+    private static class RenderThreadFactory implements ThreadFactory {
+
+        private final AtomicInteger count = new AtomicInteger();
+
+        @Override
+        public Thread newThread(Runnable r) {
+            Thread thread = new Thread(r, "codegen-render-" + count.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        }
+    }
+}
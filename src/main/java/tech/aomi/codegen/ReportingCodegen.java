@@ -0,0 +1,19 @@
+package tech.aomi.codegen;
+
+/**
+ * 支持生成报告({@link GenerationReport})和 JFR 事件({@link FlightRecorderEvents})的生成器
+ */
+public interface ReportingCodegen {
+
+    /**
+     * 本次生成的报告, 生成器实例创建时即可使用, 是否记录由 processOpts 中的 generationReport 参数决定
+     */
+    GenerationReport getGenerationReport();
+
+    /**
+     * 是否产生 JFR 事件, 由 processOpts 中的 jfrEvents 参数决定
+     */
+    default boolean isJfrEvents() {
+        return false;
+    }
+}
@@ -0,0 +1,256 @@
+package tech.aomi.codegen;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import io.swagger.v3.core.util.Json;
+import io.swagger.v3.oas.models.Components;
+import io.swagger.v3.oas.models.OpenAPI;
+import io.swagger.v3.oas.models.Operation;
+import io.swagger.v3.oas.models.PathItem;
+import io.swagger.v3.oas.models.media.Schema;
+import org.openapitools.codegen.CodegenConfig;
+import org.openapitools.codegen.config.GlobalSettings;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.ArrayDeque;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.function.Function;
+
+/**
+ * 按可达性裁剪未使用的 schema
+ * 从选中的接口出发, 沿 $ref 查找用到的 schema, 不可达的 schema 从 components.schemas 中移除, 不再生成 model.
+ * 1. 选中的接口: 没有 x-internal(OpenAPINormalizer 的 FILTER 规则会设置), 且 tag 在 globalProperties 的 apis 范围内
+ * 2. 接口引用的 components.parameters/requestBodies/responses/headers 等继续向下查找
+ * 3. schema 的 properties、items、additionalProperties、allOf/oneOf/anyOf 等中的 $ref, 以及 discriminator.mapping
+ * 4. 带 discriminator 的父类 model 中会生成子类信息, 通过 allOf 继承它的 schema 也算作可达
+ */
+public final class SchemaPruner {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(SchemaPruner.class);
+
+    public static final String PRUNE_UNUSED_SCHEMAS = "pruneUnusedSchemas";
+
+    private static final String COMPONENTS_PREFIX = "#/components/";
+
+    private static final String SCHEMAS = "schemas";
+
+    private static final String DEFAULT_TAG = "default";
+
+    private SchemaPruner() {
+    }
+
+    /**
+     * 移除不可达的 schema, 返回移除的数量
+     */
+    public static int prune(OpenAPI openAPI, CodegenConfig config) {
+        Components components = openAPI.getComponents();
+        if (null == components || null == components.getSchemas() || components.getSchemas().isEmpty()) {
+            return 0;
+        }
+        Map<String, Schema> schemas = components.getSchemas();
+        int total = schemas.size();
+        Set<String> reachable = reachableSchemas(openAPI, config::sanitizeTag);
+        schemas.keySet().retainAll(reachable);
+        int dropped = total - schemas.size();
+        LOGGER.info("pruned {} unused schemas, {} of {} are reachable from the selected operations", dropped, schemas.size(), total);
+        return dropped;
+    }
+
+    /**
+     * 选中的接口可达的 schema 名称
+     *
+     * @param tagSanitizer tag 名称的处理方式, 与 globalProperties 的 apis 比较
+     */
+    public static Set<String> reachableSchemas(OpenAPI openAPI, Function<String, String> tagSanitizer) {
+        Set<String> apis = null;
+        String apiNames = GlobalSettings.getProperty("apis");
+        if (null != apiNames && !apiNames.isEmpty()) {
+            apis = new HashSet<>(Arrays.asList(apiNames.split(",")));
+        }
+
+        Walker walker = new Walker(openAPI);
+        if (null != openAPI.getPaths()) {
+            for (PathItem pathItem : openAPI.getPaths().values()) {
+                boolean selected = false;
+                for (Operation operation : pathItem.readOperations()) {
+                    if (isSelected(operation, apis, tagSanitizer)) {
+                        selected = true;
+                        walker.visit(Json.mapper().valueToTree(operation));
+                    }
+                }
+                // 路径上的公共参数会合并到每个接口中
+                if (selected && null != pathItem.getParameters()) {
+                    walker.visit(Json.mapper().valueToTree(pathItem.getParameters()));
+                }
+            }
+        }
+        walker.run();
+        return walker.schemas;
+    }
+
+    private static boolean isSelected(Operation operation, Set<String> apis, Function<String, String> tagSanitizer) {
+        if (null != operation.getExtensions() && Boolean.TRUE.equals(operation.getExtensions().get("x-internal"))) {
+            return false;
+        }
+        if (null == apis) {
+            return true;
+        }
+        List<String> tags = null == operation.getTags() || operation.getTags().isEmpty()
+                ? Collections.singletonList(DEFAULT_TAG) : operation.getTags();
+        for (String tag : tags) {
+            if (apis.contains(tagSanitizer.apply(tag))) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * 在 json 节点中查找 components 引用, 直到没有新的 schema 或组件
+     */
+    private static final class Walker {
+
+        private final Components components;
+
+        private final Map<String, Schema> componentSchemas;
+
+        /**
+         * 父类 -> 通过 allOf 继承它的 schema, 只包含带 discriminator 的父类
+         */
+        private final Map<String, Set<String>> subtypes = new HashMap<>();
+
+        /**
+         * 已处理的组件, 例如 parameters/page
+         */
+        private final Set<String> visited = new HashSet<>();
+
+        private final Deque<JsonNode> queue = new ArrayDeque<>();
+
+        private final Set<String> schemas = new HashSet<>();
+
+        private Walker(OpenAPI openAPI) {
+            this.components = openAPI.getComponents();
+            this.componentSchemas = null == components || null == components.getSchemas()
+                    ? Collections.emptyMap() : components.getSchemas();
+            String prefix = COMPONENTS_PREFIX + SCHEMAS + "/";
+            componentSchemas.forEach((name, schema) -> {
+                if (null == schema || null == schema.getAllOf()) {
+                    return;
+                }
+                for (Object item : schema.getAllOf()) {
+                    String ref = ((Schema<?>) item).get$ref();
+                    if (null == ref || !ref.startsWith(prefix)) {
+                        continue;
+                    }
+                    String parent = ref.substring(prefix.length());
+                    Schema<?> parentSchema = componentSchemas.get(parent);
+                    if (null != parentSchema && null != parentSchema.getDiscriminator()) {
+                        subtypes.computeIfAbsent(parent, k -> new HashSet<>()).add(name);
+                    }
+                }
+            });
+        }
+
+        private void visit(JsonNode node) {
+            queue.add(node);
+        }
+
+        private void run() {
+            while (!queue.isEmpty()) {
+                JsonNode current = queue.poll();
+                if (current.isTextual()) {
+                    String text = current.asText();
+                    if (text.startsWith(COMPONENTS_PREFIX)) {
+                        reference(text.substring(COMPONENTS_PREFIX.length()));
+                    }
+                    continue;
+                }
+                // mapping 的值也可以直接是 schema 名称
+                JsonNode mapping = current.isObject() ? current.path("discriminator").path("mapping") : null;
+                if (null != mapping && mapping.isObject()) {
+                    Iterator<JsonNode> values = mapping.elements();
+                    while (values.hasNext()) {
+                        String value = values.next().asText();
+                        if (!value.contains("/")) {
+                            schema(value);
+                        }
+                    }
+                }
+                Iterator<JsonNode> it = current.elements();
+                while (it.hasNext()) {
+                    queue.add(it.next());
+                }
+            }
+        }
+
+        /**
+         * @param path 例如 schemas/User、parameters/page
+         */
+        private void reference(String path) {
+            int index = path.indexOf('/');
+            if (index < 0) {
+                return;
+            }
+            String type = path.substring(0, index);
+            String name = path.substring(index + 1);
+            if (SCHEMAS.equals(type)) {
+                schema(name);
+                return;
+            }
+            if (null == components || !visited.add(path)) {
+                return;
+            }
+            Object component = component(type, name);
+            if (null != component) {
+                queue.add(Json.mapper().valueToTree(component));
+            }
+        }
+
+        private void schema(String name) {
+            Schema<?> schema = componentSchemas.get(name);
+            if (null == schema || !schemas.add(name)) {
+                return;
+            }
+            queue.add(Json.mapper().valueToTree(schema));
+            for (String subtype : subtypes.getOrDefault(name, Collections.emptySet())) {
+                schema(subtype);
+            }
+        }
+
+        private Object component(String type, String name) {
+            Map<String, ?> map;
+            switch (type) {
+                case "parameters":
+                    map = components.getParameters();
+                    break;
+                case "requestBodies":
+                    map = components.getRequestBodies();
+                    break;
+                case "responses":
+                    map = components.getResponses();
+                    break;
+                case "headers":
+                    map = components.getHeaders();
+                    break;
+                case "callbacks":
+                    map = components.getCallbacks();
+                    break;
+                case "pathItems":
+                    map = components.getPathItems();
+                    break;
+                default:
+                    // examples、links、securitySchemes 不会引用 schema
+                    return null;
+            }
+            return null == map ? null : map.get(name);
+        }
+    }
+}
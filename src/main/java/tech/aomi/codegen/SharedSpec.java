@@ -0,0 +1,134 @@
+package tech.aomi.codegen;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.swagger.parser.OpenAPIParser;
+import io.swagger.v3.core.util.Json;
+import io.swagger.v3.core.util.Json31;
+import io.swagger.v3.oas.models.OpenAPI;
+import io.swagger.v3.oas.models.SpecVersion;
+import io.swagger.v3.parser.core.models.ParseOptions;
+import io.swagger.v3.parser.core.models.SwaggerParseResult;
+import org.openapitools.codegen.SpecValidationException;
+import org.openapitools.codegen.config.CodegenConfigurator;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.HashSet;
+
+/**
+ * 只解析一次、供多个生成器使用的 spec
+ * 解析(包括 $ref 引用文件的读取、解析和校验)只执行一次, 结果序列化后保存为不可变的快照.
+ * 生成器会直接修改 OpenAPI 对象(内联 schema 提取、OpenAPINormalizer 等), 每个生成器从快照得到独立的副本,
+ * 副本的反序列化远快于重新解析, 多个生成器可以并发使用同一个 SharedSpec.
+ */
+public class SharedSpec {
+
+    /**
+     * CodegenConfigurator 总是会解析 inputSpec, 使用一个最小的文档代替, 生成时替换为共享的副本
+     */
+    private static final String PLACEHOLDER_SPEC = "{\"openapi\":\"3.0.1\",\"info\":{\"title\":\"placeholder\",\"version\":\"1\"},\"paths\":{}}";
+
+    private static volatile File placeholder;
+
+    private final String inputSpec;
+
+    private final SpecVersion specVersion;
+
+    private final byte[] snapshot;
+
+    private final long parseMillis;
+
+    private SharedSpec(String inputSpec, SpecVersion specVersion, byte[] snapshot, long parseMillis) {
+        this.inputSpec = inputSpec;
+        this.specVersion = specVersion;
+        this.snapshot = snapshot;
+        this.parseMillis = parseMillis;
+    }
+
+    /**
+     * 解析选项和校验与 CodegenConfigurator 一致, spec 有错误时抛出 SpecValidationException
+     */
+    public static SharedSpec parse(String inputSpec) {
+        long start = System.nanoTime();
+        ParseOptions options = new ParseOptions();
+        options.setResolve(true);
+        SwaggerParseResult result = new OpenAPIParser().readLocation(inputSpec, null, options);
+        OpenAPI openAPI = result.getOpenAPI();
+        if (null != result.getMessages() && !result.getMessages().isEmpty()) {
+            SpecValidationException e = new SpecValidationException("There were issues with the specification " + inputSpec);
+            e.setErrors(new HashSet<>(result.getMessages()));
+            throw e;
+        }
+        if (null == openAPI) {
+            throw new SpecValidationException("Unable to read specification " + inputSpec);
+        }
+        SpecVersion specVersion = null == openAPI.getSpecVersion() ? SpecVersion.V30 : openAPI.getSpecVersion();
+        try {
+            byte[] snapshot = mapper(specVersion).writeValueAsBytes(openAPI);
+            return new SharedSpec(inputSpec, specVersion, snapshot, (System.nanoTime() - start) / 1_000_000);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    public String getInputSpec() {
+        return inputSpec;
+    }
+
+    /**
+     * 解析及生成快照的耗时
+     */
+    public long getParseMillis() {
+        return parseMillis;
+    }
+
+    /**
+     * 独立的副本, 修改不会影响其他生成器
+     */
+    public OpenAPI copy() {
+        try {
+            OpenAPI openAPI = mapper(specVersion).readValue(snapshot, OpenAPI.class);
+            openAPI.setSpecVersion(specVersion);
+            return openAPI;
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    /**
+     * 与 generator.opts(configurator.toClientOptInput()) 相同, 但使用共享 spec 的副本代替重新解析
+     */
+    public ParallelGenerator opts(ParallelGenerator generator, CodegenConfigurator configurator) {
+        configurator.setInputSpec(placeholder().getAbsolutePath());
+        generator.opts(configurator.toClientOptInput().openAPI(copy()));
+        generator.getConfig().setInputSpec(inputSpec);
+        return generator;
+    }
+
+    private static ObjectMapper mapper(SpecVersion specVersion) {
+        return SpecVersion.V31 == specVersion ? Json31.mapper() : Json.mapper();
+    }
+
+    private static File placeholder() {
+        File file = placeholder;
+        if (null != file && file.isFile()) {
+            return file;
+        }
+        synchronized (SharedSpec.class) {
+            if (null == placeholder || !placeholder.isFile()) {
+                try {
+                    File tmp = File.createTempFile("am-openapi-placeholder", ".json");
+                    tmp.deleteOnExit();
+                    Files.write(tmp.toPath(), PLACEHOLDER_SPEC.getBytes(StandardCharsets.UTF_8));
+                    placeholder = tmp;
+                } catch (IOException e) {
+                    throw new UncheckedIOException(e);
+                }
+            }
+            return placeholder;
+        }
+    }
+}
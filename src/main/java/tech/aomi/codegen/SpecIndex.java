@@ -0,0 +1,88 @@
+package tech.aomi.codegen;
+
+import io.swagger.v3.oas.models.OpenAPI;
+import io.swagger.v3.oas.models.media.Schema;
+import io.swagger.v3.oas.models.tags.Tag;
+
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.function.Function;
+
+/**
+ * OpenAPI 文档索引
+ * 1. schema 名称(忽略大小写) -> schema
+ * 2. 处理后的 tag 名称 -> tag
+ * 文档中的 schemas 或 tags 发生变化后需要重新构建
+ */
+public class SpecIndex {
+
+    private final OpenAPI openAPI;
+
+    private final Map<String, Schema> schemas;
+    private final int schemaCount;
+
+    private final List<Tag> tags;
+    private final int tagCount;
+
+    private final Map<String, Schema<?>> schemaIndex = new HashMap<>();
+
+    private final Map<String, Tag> tagIndex = new HashMap<>();
+
+    /**
+     * @param openAPI      文档
+     * @param tagSanitizer tag 名称的处理方式, 与生成 api 文件时使用的 tag 保持一致
+     */
+    public SpecIndex(OpenAPI openAPI, Function<String, String> tagSanitizer) {
+        this.openAPI = openAPI;
+        this.schemas = getSchemas(openAPI);
+        this.schemaCount = this.schemas.size();
+        this.tags = null == openAPI || null == openAPI.getTags() ? Collections.emptyList() : openAPI.getTags();
+        this.tagCount = this.tags.size();
+
+        // 同名时以第一个为准
+        this.schemas.forEach((name, schema) -> schemaIndex.putIfAbsent(name.toLowerCase(Locale.ROOT), schema));
+        this.tags.forEach(tag -> tagIndex.putIfAbsent(tagSanitizer.apply(tag.getName()), tag));
+    }
+
+    /**
+     * 判断索引是否和当前文档一致
+     */
+    public boolean isBuiltFrom(OpenAPI openAPI) {
+        if (this.openAPI != openAPI) {
+            return false;
+        }
+        Map<String, Schema> currentSchemas = getSchemas(openAPI);
+        if (currentSchemas != this.schemas || currentSchemas.size() != this.schemaCount) {
+            return false;
+        }
+        List<Tag> currentTags = null == openAPI || null == openAPI.getTags() ? Collections.emptyList() : openAPI.getTags();
+        return currentTags == this.tags && currentTags.size() == this.tagCount;
+    }
+
+    /**
+     * 根据名称查找 schema, 忽略大小写
+     */
+    public Schema<?> findSchema(String name) {
+        if (null == name) {
+            return null;
+        }
+        return schemaIndex.get(name.toLowerCase(Locale.ROOT));
+    }
+
+    /**
+     * 根据处理后的 tag 名称查找 tag
+     */
+    public Tag findTag(String sanitizedTag) {
+        return tagIndex.get(sanitizedTag);
+    }
+
+    private static Map<String, Schema> getSchemas(OpenAPI openAPI) {
+        if (null == openAPI || null == openAPI.getComponents() || null == openAPI.getComponents().getSchemas()) {
+            return Collections.emptyMap();
+        }
+        return openAPI.getComponents().getSchemas();
+    }
+}
@@ -0,0 +1,263 @@
+package tech.aomi.codegen;
+
+import lombok.Getter;
+import lombok.Setter;
+import org.openapitools.codegen.ClientOptInput;
+import org.openapitools.codegen.config.GlobalSettings;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.ClosedWatchServiceException;
+import java.nio.file.FileSystems;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardWatchEventKinds;
+import java.nio.file.WatchEvent;
+import java.nio.file.WatchKey;
+import java.nio.file.WatchService;
+import java.util.ArrayDeque;
+import java.util.Collections;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.concurrent.TimeUnit;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * 监听 spec 及其 $ref 引用的文件, 文件变化后在当前 JVM 中重新生成
+ * 使用增量生成({@link IncrementalManifest})和 skipUnchanged, 只重新渲染受影响的 handler/model/路由文件.
+ * 每次生成输出耗时明细: 解析、生成以及各类文件的渲染耗时.
+ * <p>
+ * java -cp openapi-generator-cli.jar:am-openapi-generator.jar tech.aomi.codegen.SpecWatcher
+ * -g my-go-gin-server -i api.yaml -o out -p moduleName=github.com/xx/xx
+ */
+public class SpecWatcher implements Closeable {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(SpecWatcher.class);
+
+    /**
+     * 外部文件引用, 例如 $ref: './schemas/user.yaml#/User', 忽略文件内的引用和 http(s) 地址
+     */
+    private static final Pattern EXTERNAL_REF = Pattern.compile("\\$ref\"?'?\\s*:\\s*[\"']?([^\"'#\\s}]+)");
+
+    private final GenerationJob job;
+
+    private final WatchService watchService;
+
+    /**
+     * 已注册的目录
+     */
+    private final Map<Path, WatchKey> directories = new HashMap<>();
+
+    /**
+     * spec 及其引用的文件
+     */
+    @Getter
+    private Set<Path> watchedFiles = Collections.emptySet();
+
+    /**
+     * 收到变化后等待该时间内的其它变化, 编辑器保存时通常会产生多个事件
+     */
+    @Getter
+    @Setter
+    private long debounceMillis = 50;
+
+    /**
+     * 已执行的生成次数
+     */
+    @Getter
+    private int cycles;
+
+    private volatile boolean running;
+
+    public SpecWatcher(GenerationJob job) throws IOException {
+        this.job = job;
+        // 增量生成 + 内容相同时不写入, 保证单个接口的修改只重新生成相关文件
+        job.setIncremental(true);
+        job.setSkipUnchanged(true);
+        this.watchService = FileSystems.getDefault().newWatchService();
+    }
+
+    /**
+     * 先生成一次, 之后每次文件变化重新生成, 直到 close
+     */
+    public void run() throws IOException, InterruptedException {
+        running = true;
+        Path spec = Paths.get(job.getInputSpec()).toAbsolutePath().normalize();
+        cycle(Collections.singleton(spec));
+        while (running) {
+            WatchKey key;
+            try {
+                key = watchService.take();
+            } catch (ClosedWatchServiceException e) {
+                break;
+            }
+            long detected = System.nanoTime();
+            Set<Path> changed = new LinkedHashSet<>();
+            collect(key, changed);
+            // 合并短时间内的多个事件
+            WatchKey more;
+            while (null != (more = watchService.poll(debounceMillis, TimeUnit.MILLISECONDS))) {
+                collect(more, changed);
+            }
+            if (!changed.isEmpty()) {
+                LOGGER.info("changed: {} (debounce {} ms)", changed, (System.nanoTime() - detected) / 1_000_000);
+                cycle(changed);
+            }
+        }
+    }
+
+    private void collect(WatchKey key, Set<Path> changed) {
+        Path dir = (Path) key.watchable();
+        for (WatchEvent<?> event : key.pollEvents()) {
+            if (event.kind() == StandardWatchEventKinds.OVERFLOW) {
+                changed.addAll(watchedFiles);
+                continue;
+            }
+            Path file = dir.resolve((Path) event.context()).toAbsolutePath().normalize();
+            if (watchedFiles.contains(file)) {
+                changed.add(file);
+            }
+        }
+        key.reset();
+    }
+
+    /**
+     * 一次生成, 失败时只记录日志, 继续监听
+     */
+    private void cycle(Set<Path> changed) {
+        cycles++;
+        long start = System.nanoTime();
+        try {
+            ClientOptInput input = job.toConfigurator().toClientOptInput();
+            long parsed = System.nanoTime();
+            ParallelGenerator generator = job.newGenerator();
+            generator.opts(input);
+            GenerationReport.recordParse(generator.getConfig(), parsed - start);
+            generator.generate();
+            long generated = System.nanoTime();
+            watch(Paths.get(job.getInputSpec()).toAbsolutePath().normalize());
+            long end = System.nanoTime();
+            report(changed, generator, parsed - start, generated - parsed, end - start);
+        } catch (Exception e) {
+            LOGGER.error("cycle {} failed: {}", cycles, e.getMessage(), e);
+            try {
+                // 解析失败时仍然监听已知的文件, 修复后重新生成
+                watch(Paths.get(job.getInputSpec()).toAbsolutePath().normalize());
+            } catch (IOException ex) {
+                LOGGER.error("watch failed", ex);
+            }
+        } finally {
+            GlobalSettings.reset();
+        }
+    }
+
+    private void report(Set<Path> changed, ParallelGenerator generator, long parseNanos, long generateNanos, long totalNanos) {
+        Map<String, long[]> categories = new TreeMap<>();
+        for (ParallelGenerator.FileTiming timing : generator.getTimings()) {
+            long[] sum = categories.computeIfAbsent(timing.getCategory(), k -> new long[2]);
+            sum[0]++;
+            sum[1] += timing.getNanos();
+        }
+        StringBuilder detail = new StringBuilder();
+        categories.forEach((category, sum) -> detail.append(", ").append(category).append(' ')
+                .append(sum[0]).append(" files ").append(sum[1] / 1_000_000).append(" ms"));
+        LOGGER.info("cycle {}: total {} ms = parse {} ms + generate {} ms{}; rendered {}, written {}, unchanged {}, skipped {}; changed {}",
+                cycles, totalNanos / 1_000_000, parseNanos / 1_000_000, generateNanos / 1_000_000, detail,
+                generator.getTimings().size(), generator.getWrittenFiles(), generator.getUnchangedFiles(),
+                generator.getSkippedFiles(), changed.size());
+    }
+
+    /**
+     * 重新计算 spec 引用的文件并注册所在目录, $ref 可能在本次修改中变化
+     */
+    private void watch(Path spec) throws IOException {
+        Set<Path> files = referencedFiles(spec);
+        for (Path file : files) {
+            Path dir = file.getParent();
+            if (null != dir && !directories.containsKey(dir) && Files.isDirectory(dir)) {
+                directories.put(dir, dir.register(watchService,
+                        StandardWatchEventKinds.ENTRY_CREATE, StandardWatchEventKinds.ENTRY_MODIFY));
+            }
+        }
+        this.watchedFiles = files;
+    }
+
+    /**
+     * spec 及其通过 $ref 直接或间接引用的本地文件
+     */
+    static Set<Path> referencedFiles(Path spec) {
+        Set<Path> files = new LinkedHashSet<>();
+        Deque<Path> queue = new ArrayDeque<>();
+        queue.add(spec);
+        while (!queue.isEmpty()) {
+            Path file = queue.poll();
+            if (!files.add(file) || !Files.isRegularFile(file)) {
+                continue;
+            }
+            String content;
+            try {
+                content = new String(Files.readAllBytes(file), StandardCharsets.UTF_8);
+            } catch (IOException e) {
+                LOGGER.warn("read {} failed: {}", file, e.getMessage());
+                continue;
+            }
+            Matcher matcher = EXTERNAL_REF.matcher(content);
+            while (matcher.find()) {
+                String ref = matcher.group(1);
+                if (ref.contains("://")) {
+                    continue;
+                }
+                queue.add(file.resolveSibling(ref).toAbsolutePath().normalize());
+            }
+        }
+        return files;
+    }
+
+    @Override
+    public void close() throws IOException {
+        running = false;
+        watchService.close();
+    }
+
+    public static void main(String[] args) throws Exception {
+        GenerationJob job = new GenerationJob();
+        long debounce = -1;
+        for (int i = 0; i < args.length; i++) {
+            int next = GenerationClient.parseJobOption(job, args, i);
+            if (next >= 0) {
+                i = next;
+            } else if ("--debounce".equals(args[i])) {
+                debounce = Long.parseLong(args[++i]);
+            } else {
+                System.err.println("unknown argument: " + args[i]);
+                System.exit(2);
+            }
+        }
+        if (null == job.getGeneratorName() || null == job.getInputSpec() || null == job.getOutputDir()) {
+            System.err.println("usage: SpecWatcher -g <generator> -i <spec> -o <output> [-p k=v,...] [--workers N] [--debounce ms]");
+            System.exit(2);
+        }
+        GenerationClient.resolvePaths(job);
+        SpecWatcher watcher = new SpecWatcher(job);
+        if (debounce >= 0) {
+            watcher.setDebounceMillis(debounce);
+        }
+        Runtime.getRuntime().addShutdownHook(new Thread(() -> {
+            try {
+                watcher.close();
+            } catch (IOException ignored) {
+                // 退出时忽略
+            }
+        }));
+        watcher.run();
+    }
+}
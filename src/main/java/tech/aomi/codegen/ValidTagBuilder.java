@@ -0,0 +1,209 @@
+package tech.aomi.codegen;
+
+import com.samskivert.mustache.Escapers;
+
+import java.util.List;
+import java.util.Map;
+
+/**
+ * 校验 tag 构建器
+ * 根据校验条件直接生成 tag 文本, 结果与 paramsValid.mustache 中逐个条件展开 valid*.mustache 一致.
+ * 无状态, 同一个生成器中的所有属性/参数共用
+ */
+public class ValidTagBuilder {
+
+    public enum Style {
+        /**
+         * gin: binding:"required,max=64"
+         */
+        GIN,
+        /**
+         * go-zero: ,required_xxx,max=64
+         */
+        GO_ZERO
+    }
+
+    public static final ValidTagBuilder GIN = new ValidTagBuilder(Style.GIN);
+
+    public static final ValidTagBuilder GO_ZERO = new ValidTagBuilder(Style.GO_ZERO);
+
+    private final Style style;
+
+    private ValidTagBuilder(Style style) {
+        this.style = style;
+    }
+
+    /**
+     * 生成 tag 文本
+     *
+     * @param conditions 校验条件
+     * @param enums      枚举值
+     * @param readOnly   是否只读, 只读时 gin 不生成 required
+     * @param minimum    属性的 minimum, go-zero 生成 range 时使用
+     * @param maximum    属性的 maximum, go-zero 生成 range 时使用
+     */
+    public String build(List<Map<String, Object>> conditions, List<String> enums, boolean readOnly, String minimum, String maximum) {
+        if (conditions.isEmpty()) {
+            return "";
+        }
+        StringBuilder sb = new StringBuilder();
+        if (style == Style.GIN) {
+            sb.append(" binding:\"");
+        }
+        for (int i = 0; i < conditions.size(); i++) {
+            @SuppressWarnings("unchecked")
+            Map<String, Object> c = (Map<String, Object>) conditions.get(i).get("c");
+            for (Map.Entry<String, Object> entry : c.entrySet()) {
+                if (style == Style.GIN) {
+                    appendGin(sb, entry.getKey(), entry.getValue(), enums, readOnly);
+                } else {
+                    appendGoZero(sb, entry.getKey(), entry.getValue(), enums, minimum, maximum);
+                }
+            }
+            if (style == Style.GIN && i < conditions.size() - 1) {
+                sb.append(',');
+            }
+        }
+        if (style == Style.GIN) {
+            sb.append('"');
+        }
+        return sb.toString();
+    }
+
+    private static void appendGin(StringBuilder sb, String key, Object value, List<String> enums, boolean readOnly) {
+        switch (key) {
+            case "isEmail":
+                sb.append("email");
+                break;
+            case "isEnum":
+                sb.append("oneof=");
+                if (null != enums) {
+                    for (int i = 0; i < enums.size(); i++) {
+                        sb.append('\'').append(escape(enums.get(i))).append('\'');
+                        if (i < enums.size() - 1) {
+                            sb.append(' ');
+                        }
+                    }
+                }
+                break;
+            case "isHostname":
+                sb.append("hostname");
+                break;
+            case "isIpv4":
+                sb.append("ipv4");
+                break;
+            case "isIpv6":
+                sb.append("ipv6");
+                break;
+            case "maximum":
+            case "maxItems":
+            case "maxLength":
+                sb.append("max=").append(escape(value));
+                break;
+            case "minimum":
+            case "minItems":
+            case "minLength":
+                sb.append("min=").append(escape(value));
+                break;
+            case "multipleOf":
+                sb.append("multipleOf=").append(escape(value));
+                break;
+            case "pattern":
+                sb.append("regexp=").append(escape(value));
+                break;
+            case "required":
+                if (!readOnly) {
+                    sb.append("required");
+                }
+                break;
+            case "uniqueItems":
+                sb.append("unique");
+                break;
+            case "isUri":
+                sb.append("uri");
+                break;
+            case "isUuid":
+                sb.append("uuid");
+                break;
+            default:
+                break;
+        }
+    }
+
+    private static void appendGoZero(StringBuilder sb, String key, Object value, List<String> enums, String minimum, String maximum) {
+        switch (key) {
+            case "isEmail":
+                sb.append(",email");
+                break;
+            case "isEnum":
+                sb.append(",options=[");
+                if (null != enums) {
+                    for (int i = 0; i < enums.size(); i++) {
+                        sb.append(escape(enums.get(i)));
+                        if (i < enums.size() - 1) {
+                            sb.append(',');
+                        }
+                    }
+                }
+                sb.append(']');
+                break;
+            case "isHostname":
+                sb.append(",hostname");
+                break;
+            case "isIpv4":
+                sb.append(",ipv4");
+                break;
+            case "isIpv6":
+                sb.append(",ipv6");
+                break;
+            case "maximum":
+                // 同时有 minimum 时与 minimum 合并为 range=[min:max]
+                if (null == minimum) {
+                    sb.append(",range=[:");
+                }
+                sb.append(escape(value)).append(']');
+                break;
+            case "maxItems":
+            case "maxLength":
+                sb.append(",max=").append(escape(value));
+                break;
+            case "minimum":
+                sb.append(",range=[").append(escape(value)).append(':');
+                if (null == maximum) {
+                    sb.append(']');
+                }
+                break;
+            case "minItems":
+            case "minLength":
+                sb.append(",min=").append(escape(value));
+                break;
+            case "multipleOf":
+                sb.append(",multipleOf=").append(escape(value));
+                break;
+            case "pattern":
+                sb.append(",regexp=").append(escape(value));
+                break;
+            case "required":
+                sb.append(",required_xxx");
+                break;
+            case "uniqueItems":
+                sb.append(",unique");
+                break;
+            case "isUri":
+                sb.append(",uri");
+                break;
+            case "isUuid":
+                sb.append(",uuid");
+                break;
+            default:
+                break;
+        }
+    }
+
+    /**
+     * 与模板中 {{xxx}} 的转义方式一致
+     */
+    private static String escape(Object value) {
+        return null == value ? "" : Escapers.HTML.escape(String.valueOf(value));
+    }
+}
@@ -0,0 +1,95 @@
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+import org.openapitools.codegen.CodegenConstants;
+import tech.aomi.codegen.AbstractGoWebServerGenerator;
+import tech.aomi.codegen.CompiledTemplateCache;
+import tech.aomi.codegen.GenerationJob;
+import tech.aomi.codegen.OutputTree;
+import tech.aomi.codegen.SpecSynthesizer;
+
+import java.io.File;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+public class CompiledTemplateCacheTest {
+
+    private static final int ROUNDS = 6;
+
+    // 两个任务同时使用同一个内置模板, 其中一个在 templateDir 中覆盖了 partial, 各自的输出都与不使用缓存时一致
+    @Test
+    public void overriddenPartialIsNotShared() throws Exception {
+        String spec = new SpecSynthesizer()
+                .schemas(40)
+                .propertiesPerSchema(6)
+                .tags(2)
+                .validationDensity(1)
+                .writeTo(new File("target/template-cache/openapi.json"));
+        File templateDir = new File("target/template-cache/templates");
+        templateDir.mkdirs();
+        Files.write(new File(templateDir, "validMaxLength.mustache").toPath(),
+                "{{#c.maxLength}}max={{c.maxLength}}|overridden{{/c.maxLength}}".getBytes(StandardCharsets.UTF_8));
+
+        CompiledTemplateCache cache = CompiledTemplateCache.getInstance();
+        int maximumSize = cache.getMaximumSize();
+        try {
+            cache.setMaximumSize(0);
+            Map<String, String> embedded = OutputTree.read(generate(spec, null, "embedded"));
+            Map<String, String> overridden = OutputTree.read(generate(spec, templateDir.getAbsolutePath(), "overridden"));
+            Assertions.assertFalse(embedded.toString().contains("|overridden"));
+            Assertions.assertTrue(overridden.toString().contains("|overridden"));
+
+            cache.setMaximumSize(CompiledTemplateCache.DEFAULT_MAXIMUM_SIZE);
+            ExecutorService executor = Executors.newFixedThreadPool(2);
+            try {
+                for (int round = 0; round < ROUNDS; round++) {
+                    // 奇数轮保留上一轮的缓存, 两个版本都已缓存时同样不能混用
+                    if (round % 2 == 0) {
+                        cache.clear();
+                    }
+                    CountDownLatch start = new CountDownLatch(1);
+                    List<Future<File>> futures = new ArrayList<>();
+                    String suffix = "-" + round;
+                    futures.add(executor.submit(() -> {
+                        start.await();
+                        return generate(spec, null, "embedded" + suffix);
+                    }));
+                    futures.add(executor.submit(() -> {
+                        start.await();
+                        return generate(spec, templateDir.getAbsolutePath(), "overridden" + suffix);
+                    }));
+                    start.countDown();
+                    Assertions.assertEquals(embedded, OutputTree.read(futures.get(0).get()), "round " + round);
+                    Assertions.assertEquals(overridden, OutputTree.read(futures.get(1).get()), "round " + round);
+                }
+            } finally {
+                executor.shutdownNow();
+            }
+        } finally {
+            cache.setMaximumSize(maximumSize);
+            cache.clear();
+        }
+    }
+
+    private static File generate(String spec, String templateDir, String name) throws Exception {
+        File output = new File("target/template-cache/out/" + name);
+        OutputTree.delete(output);
+        GenerationJob job = new GenerationJob();
+        job.setGeneratorName("my-go-gin-server");
+        job.setInputSpec(spec);
+        job.setOutputDir(output.getPath());
+        job.setTemplateDir(templateDir);
+        job.getAdditionalProperties().put(AbstractGoWebServerGenerator.MODULE_NAME, "github.com/demo/app");
+        // 都使用 valid*.mustache 生成校验 tag
+        job.getAdditionalProperties().put(AbstractGoWebServerGenerator.PRECOMPUTE_VALID_TAGS, "false");
+        job.getAdditionalProperties().put(CodegenConstants.SKIP_OPERATION_EXAMPLE, "true");
+        job.run();
+        return output;
+    }
+}
@@ -0,0 +1,81 @@
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+import org.openapitools.codegen.CodegenConstants;
+import tech.aomi.codegen.AbstractGoWebServerGenerator;
+import tech.aomi.codegen.GenerationCache;
+import tech.aomi.codegen.GenerationJob;
+import tech.aomi.codegen.OutputTree;
+import tech.aomi.codegen.SpecSynthesizer;
+
+import java.io.File;
+import java.nio.file.FileSystems;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.Map;
+
+public class GenerationCacheTest {
+
+    // 以硬链接恢复到输出目录后, 在同一目录中生成其他 spec 不能修改缓存条目
+    @Test
+    public void linkedRestoreDoesNotCorruptCache() throws Exception {
+        File root = new File("target/generation-cache");
+        OutputTree.delete(root);
+        String first = new SpecSynthesizer()
+                .schemas(10)
+                .tags(2)
+                .writeTo(new File(root, "first/openapi.json"));
+        String second = new SpecSynthesizer()
+                .schemas(12)
+                .tags(2)
+                .writeTo(new File(root, "second/openapi.json"));
+        File output = new File(root, "out");
+
+        GenerationJob job = newJob(first, output);
+        // key 包含输出目录中的 .openapi-generator-ignore, 在生成前计算
+        String key = GenerationCache.key(job);
+        job.run();
+        Map<String, String> expected = OutputTree.read(output);
+        OutputTree.delete(output);
+
+        List<File> restored = job.run();
+        Assertions.assertEquals(expected, OutputTree.read(output));
+        boolean unix = FileSystems.getDefault().supportedFileAttributeViews().contains("unix");
+        if (unix) {
+            Path file = restored.get(0).toPath();
+            Assertions.assertEquals(2, ((Number) Files.getAttribute(file, "unix:nlink")).intValue(), file.toString());
+        }
+
+        newJob(second, output).run();
+        Assertions.assertNotEquals(expected, OutputTree.read(output));
+        if (unix) {
+            for (File file : restored) {
+                if (file.isFile()) {
+                    Assertions.assertEquals(1, ((Number) Files.getAttribute(file.toPath(), "unix:nlink")).intValue(), file.getPath());
+                }
+            }
+        }
+
+        // 缓存中的内容仍然是第一个 spec 的结果
+        File fresh = new File(root, "fresh");
+        List<File> files = new GenerationCache(new File(root, "cache").toPath(), GenerationCache.DEFAULT_MAX_BYTES)
+                .restore(key, fresh, false);
+        Assertions.assertNotNull(files);
+        Assertions.assertEquals(expected, OutputTree.read(fresh));
+        for (File file : files) {
+            Assertions.assertTrue(file.canWrite(), file.getPath());
+        }
+    }
+
+    private static GenerationJob newJob(String spec, File output) {
+        GenerationJob job = new GenerationJob();
+        job.setGeneratorName("my-go-gin-server");
+        job.setInputSpec(spec);
+        job.setOutputDir(output.getPath());
+        job.setCacheDir(new File("target/generation-cache/cache").getAbsolutePath());
+        job.setCacheLinks(true);
+        job.getAdditionalProperties().put(AbstractGoWebServerGenerator.MODULE_NAME, "github.com/demo/app");
+        job.getAdditionalProperties().put(CodegenConstants.SKIP_OPERATION_EXAMPLE, "true");
+        return job;
+    }
+}
@@ -0,0 +1,51 @@
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+import tech.aomi.codegen.GenerationClient;
+import tech.aomi.codegen.GenerationDaemon;
+import tech.aomi.codegen.GenerationJob;
+
+import java.io.File;
+import java.net.InetAddress;
+import java.nio.file.FileSystems;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.PosixFilePermissions;
+
+public class GenerationDaemonTest {
+
+    // 没有 token 或 token 错误的请求都被拒绝, token 文件只有当前用户可以读取
+    @Test
+    public void requiresToken() throws Exception {
+        Path tokenFile = new File("target/daemon/daemon.token").getAbsoluteFile().toPath();
+        String host = InetAddress.getLoopbackAddress().getHostAddress();
+        GenerationDaemon daemon = new GenerationDaemon(0, 1, tokenFile);
+        try {
+            daemon.start();
+            if (FileSystems.getDefault().supportedFileAttributeViews().contains("posix")) {
+                Assertions.assertEquals("rw-------", PosixFilePermissions.toString(Files.getPosixFilePermissions(tokenFile)));
+            }
+            String token = GenerationDaemon.readToken(tokenFile);
+
+            GenerationJob job = new GenerationJob();
+            job.setGeneratorName("my-go-gin-server");
+            job.setInputSpec("missing.yaml");
+            job.setOutputDir(new File("target/daemon/out").getAbsolutePath());
+            for (GenerationClient client : new GenerationClient[]{
+                    new GenerationClient(host, daemon.getPort(), null),
+                    new GenerationClient(host, daemon.getPort(), token.substring(1) + "0")}) {
+                GenerationDaemon.Response response = client.generate(job);
+                Assertions.assertFalse(response.isOk());
+                Assertions.assertEquals("unauthorized", response.getMessage());
+                Assertions.assertFalse(client.command(GenerationDaemon.COMMAND_SHUTDOWN).isOk());
+            }
+
+            GenerationClient client = new GenerationClient(host, daemon.getPort(), token);
+            Assertions.assertEquals("pong", client.command(GenerationDaemon.COMMAND_PING).getMessage());
+            Assertions.assertTrue(client.command(GenerationDaemon.COMMAND_SHUTDOWN).isOk());
+            daemon.awaitTermination();
+            Assertions.assertFalse(Files.exists(tokenFile));
+        } finally {
+            daemon.close();
+        }
+    }
+}
@@ -0,0 +1,93 @@
+import io.swagger.v3.core.util.Json;
+import io.swagger.v3.oas.models.OpenAPI;
+import io.swagger.v3.oas.models.media.ComposedSchema;
+import io.swagger.v3.oas.models.media.ObjectSchema;
+import io.swagger.v3.oas.models.media.Schema;
+import io.swagger.v3.oas.models.media.StringSchema;
+import io.swagger.v3.oas.models.parameters.Parameter;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+import org.openapitools.codegen.CodegenConstants;
+import tech.aomi.codegen.AbstractGoWebServerGenerator;
+import tech.aomi.codegen.GenerationJob;
+import tech.aomi.codegen.IncrementalManifest;
+import tech.aomi.codegen.MyDartDioClientCodegen;
+import tech.aomi.codegen.OutputTree;
+import tech.aomi.codegen.SpecSynthesizer;
+
+import java.io.File;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Consumer;
+
+public class IncrementalGenerationTest {
+
+    private static final List<String> GENERATORS = Arrays.asList("my-go-gin-server", "go-zero-server", "go-zero-server-api", "my-dart-dio");
+
+    // 每次修改文档后, 增量生成的结果与完整生成一致
+    @Test
+    public void sameOutputAsFullGeneration() throws Exception {
+        OpenAPI openAPI = new SpecSynthesizer()
+                .schemas(12)
+                .propertiesPerSchema(6)
+                .tags(2)
+                .validationDensity(0.5)
+                .build();
+        openAPI.getComponents().addSchemas("Parent", new ObjectSchema().addProperty("name", new StringSchema()));
+        File spec = new File("target/incremental/openapi.json");
+
+        for (String generator : GENERATORS) {
+            File incremental = new File("target/incremental/" + generator + "/incremental");
+            File full = new File("target/incremental/" + generator + "/full");
+            OutputTree.delete(incremental);
+            OutputTree.delete(full);
+            write(spec, openAPI);
+            generate(generator, spec, incremental, true);
+            // 已存在的 .openapi-generator-ignore 不会写入 FILES, 两个目录都先生成一次
+            generate(generator, spec, full, false);
+
+            List<Consumer<OpenAPI>> edits = Arrays.asList(
+                    // 修改 schema
+                    api -> api.getComponents().getSchemas().get("Model3").addProperty("extra", new StringSchema()),
+                    // 新增通过 allOf 继承的子类, 父类没有 discriminator
+                    api -> api.getComponents().addSchemas("Child", new ComposedSchema()
+                            .addAllOfItem(new Schema<>().$ref("#/components/schemas/Parent"))
+                            .addAllOfItem(new ObjectSchema().addProperty("age", new StringSchema()))),
+                    // 修改接口
+                    api -> api.getPaths().get("/tag0/items0/{id}").getGet()
+                            .addParametersItem(new Parameter().in("query").name("sort").schema(new StringSchema())));
+            OpenAPI edited = Json.mapper().readValue(Json.pretty(openAPI), OpenAPI.class);
+            for (int i = 0; i < edits.size(); i++) {
+                edits.get(i).accept(edited);
+                write(spec, edited);
+                generate(generator, spec, incremental, true);
+                generate(generator, spec, full, false);
+                Map<String, String> actual = OutputTree.read(incremental);
+                actual.remove(IncrementalManifest.FILE_NAME.replace(File.separatorChar, '/'));
+                Assertions.assertEquals(OutputTree.read(full), actual, generator + " after edit " + i);
+            }
+        }
+    }
+
+    private static void write(File spec, OpenAPI openAPI) throws Exception {
+        spec.getParentFile().mkdirs();
+        Files.write(spec.toPath(), Json.pretty(openAPI).getBytes(StandardCharsets.UTF_8));
+    }
+
+    private static void generate(String generatorName, File spec, File output, boolean incremental) {
+        GenerationJob job = new GenerationJob();
+        job.setGeneratorName(generatorName);
+        job.setInputSpec(spec.getAbsolutePath());
+        job.setOutputDir(output.getPath());
+        job.setIncremental(incremental);
+        job.getAdditionalProperties().put(AbstractGoWebServerGenerator.MODULE_NAME, "github.com/demo/app");
+        job.getAdditionalProperties().put("pubName", "demo");
+        job.getAdditionalProperties().put(MyDartDioClientCodegen.BASE_PUB_NAME, "base");
+        // 合成文档中 schema 互相引用, 上游 ExampleGenerator 的示例会指数增长
+        job.getAdditionalProperties().put(CodegenConstants.SKIP_OPERATION_EXAMPLE, "true");
+        job.run();
+    }
+}
@@ -0,0 +1,176 @@
+import io.swagger.v3.core.util.Json;
+import io.swagger.v3.oas.models.OpenAPI;
+import io.swagger.v3.oas.models.Operation;
+import io.swagger.v3.oas.models.PathItem;
+import io.swagger.v3.oas.models.media.Content;
+import io.swagger.v3.oas.models.media.MediaType;
+import io.swagger.v3.oas.models.media.Schema;
+import io.swagger.v3.oas.models.media.StringSchema;
+import io.swagger.v3.oas.models.parameters.Parameter;
+import io.swagger.v3.oas.models.responses.ApiResponse;
+import io.swagger.v3.oas.models.responses.ApiResponses;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Assumptions;
+import org.junit.jupiter.api.Test;
+import org.openapitools.codegen.ClientOptInput;
+import org.openapitools.codegen.CodegenConfig;
+import org.openapitools.codegen.CodegenConstants;
+import org.openapitools.codegen.CodegenModel;
+import org.openapitools.codegen.CodegenProperty;
+import org.openapitools.codegen.config.CodegenConfigurator;
+import tech.aomi.codegen.AbstractGoWebServerGenerator;
+import tech.aomi.codegen.ExtendedCodegenProperty;
+import tech.aomi.codegen.GenerationJob;
+import tech.aomi.codegen.OutputTree;
+import tech.aomi.codegen.SpecSynthesizer;
+
+import javax.management.MalformedObjectNameException;
+import javax.management.ObjectName;
+import java.io.File;
+import java.lang.management.ManagementFactory;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+public class LowMemoryModeTest {
+
+    private static final List<String> GENERATORS = Arrays.asList("my-go-gin-server", "go-zero-server", "go-zero-server-api");
+
+    private static final List<String> PROPERTY_CLASSES = Arrays.asList(
+            CodegenProperty.class.getName(), ExtendedCodegenProperty.class.getName());
+
+    private static final ObjectName DIAGNOSTIC_COMMAND;
+
+    /**
+     * num: instances bytes class-name (module)
+     */
+    private static final Pattern HISTOGRAM_LINE = Pattern.compile("^\\s*\\d+:\\s+\\d+\\s+(\\d+)\\s+(\\S+)", Pattern.MULTILINE);
+
+    static {
+        try {
+            DIAGNOSTIC_COMMAND = new ObjectName("com.sun.management:type=DiagnosticCommand");
+        } catch (MalformedObjectNameException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    // 两种模式生成的文件必须完全一致
+    @Test
+    public void sameOutput() throws Exception {
+        OpenAPI openAPI = new SpecSynthesizer()
+                .schemas(60)
+                .propertiesPerSchema(12)
+                .tags(3)
+                .nestingDepth(2)
+                .oneOfRatio(0.1)
+                .validationDensity(0.5)
+                .inheritanceDepth(3)
+                .build();
+        // 带 format 的参数, 两种模式下的校验条件和时间格式一致
+        openAPI.getPaths().addPathItem("/tag0/formats/{host}", new PathItem().get(new Operation()
+                .addTagsItem("tag0")
+                .operationId("checkFormats")
+                .addParametersItem(new Parameter().in("path").name("host").required(true).schema(new StringSchema().format("hostname")))
+                .addParametersItem(new Parameter().in("query").name("ip").schema(new StringSchema().format("ipv4")))
+                .addParametersItem(new Parameter().in("query").name("ip6").schema(new StringSchema().format("ipv6")))
+                .addParametersItem(new Parameter().in("query").name("at").schema(new StringSchema().format("time")))
+                .responses(new ApiResponses().addApiResponse("200", new ApiResponse().description("OK")
+                        .content(new Content().addMediaType("application/json",
+                                new MediaType().schema(new Schema<>().$ref("#/components/schemas/Model0"))))))));
+        File spec = new File("target/low-memory/same-output.json");
+        spec.getParentFile().mkdirs();
+        Files.write(spec.toPath(), Json.pretty(openAPI).getBytes(StandardCharsets.UTF_8));
+
+        for (String generator : GENERATORS) {
+            File normal = generate(generator, spec, false);
+            File lowMemory = generate(generator, spec, true);
+            Assertions.assertEquals(OutputTree.read(normal), OutputTree.read(lowMemory), generator);
+        }
+    }
+
+    // 解析全部 model 后存活的属性对象(CodegenProperty 及其子类)占用的内存, 低内存模式至少减少 10%.
+    // 使用 GC.class_histogram 统计存活对象, 结果只与对象数量和布局有关, 不受 GC 时机影响
+    @Test
+    public void lowerRetainedPropertyBytes() throws Exception {
+        Assumptions.assumeTrue(ManagementFactory.getPlatformMBeanServer().isRegistered(DIAGNOSTIC_COMMAND),
+                "GC.class_histogram is not available");
+        String spec = new SpecSynthesizer()
+                .schemas(2000)
+                .propertiesPerSchema(30)
+                .writeTo(new File("target/low-memory/openapi.json"));
+
+        long normal = retainedPropertyBytes(spec, false);
+        long lowMemory = retainedPropertyBytes(spec, true);
+        Assertions.assertTrue(lowMemory < normal * 0.9,
+                "retained property bytes: normal " + normal / 1024 + " KB, lowMemoryMode " + lowMemory / 1024 + " KB");
+    }
+
+    private static File generate(String generatorName, File spec, boolean lowMemoryMode) throws Exception {
+        File output = new File("target/low-memory/" + generatorName + "/" + (lowMemoryMode ? "low-memory" : "normal"));
+        OutputTree.delete(output);
+        GenerationJob job = new GenerationJob();
+        job.setGeneratorName(generatorName);
+        job.setInputSpec(spec.getAbsolutePath());
+        job.setOutputDir(output.getPath());
+        job.getAdditionalProperties().put(AbstractGoWebServerGenerator.MODULE_NAME, "github.com/demo/app");
+        job.getAdditionalProperties().put(AbstractGoWebServerGenerator.MODEL_FOLDER_FIELD_NAME, "x-apifox-folder");
+        job.getAdditionalProperties().put(AbstractGoWebServerGenerator.LOW_MEMORY_MODE, String.valueOf(lowMemoryMode));
+        // 合成文档中 schema 互相引用, 上游 ExampleGenerator 的示例会指数增长
+        job.getAdditionalProperties().put(CodegenConstants.SKIP_OPERATION_EXAMPLE, "true");
+        job.run();
+        return output;
+    }
+
+    /**
+     * 解析全部 model 前后, 存活的 CodegenProperty 及其子类占用内存的差值
+     */
+    private static long retainedPropertyBytes(String spec, boolean lowMemoryMode) throws Exception {
+        Map<String, Object> properties = new HashMap<>();
+        properties.put(AbstractGoWebServerGenerator.MODULE_NAME, "github.com/demo/app");
+        properties.put(AbstractGoWebServerGenerator.MODEL_FOLDER_FIELD_NAME, "x-apifox-folder");
+        properties.put(AbstractGoWebServerGenerator.LOW_MEMORY_MODE, String.valueOf(lowMemoryMode));
+
+        final CodegenConfigurator configurator = new CodegenConfigurator()
+                .setGeneratorName("my-go-gin-server")
+                .setInputSpec(spec)
+                .setAdditionalProperties(properties)
+                .setOutputDir("target/low-memory/out");
+        ClientOptInput input = configurator.toClientOptInput();
+        CodegenConfig config = input.getConfig();
+        OpenAPI openAPI = input.getOpenAPI();
+        config.processOpts();
+        config.preprocessOpenAPI(openAPI);
+        config.setOpenAPI(openAPI);
+
+        long before = propertyBytes();
+        List<CodegenModel> models = new ArrayList<>();
+        for (Map.Entry<String, Schema> entry : openAPI.getComponents().getSchemas().entrySet()) {
+            models.add(config.fromModel(entry.getKey(), entry.getValue()));
+        }
+        long after = propertyBytes();
+        Assertions.assertEquals(openAPI.getComponents().getSchemas().size(), models.size());
+        return after - before;
+    }
+
+    /**
+     * 存活的 CodegenProperty 和 ExtendedCodegenProperty 占用的内存, GC.class_histogram 会先执行 full GC
+     */
+    private static long propertyBytes() throws Exception {
+        String histogram = (String) ManagementFactory.getPlatformMBeanServer().invoke(DIAGNOSTIC_COMMAND,
+                "gcClassHistogram", new Object[]{new String[0]}, new String[]{String[].class.getName()});
+        long bytes = 0;
+        Matcher matcher = HISTOGRAM_LINE.matcher(histogram);
+        while (matcher.find()) {
+            if (PROPERTY_CLASSES.contains(matcher.group(2))) {
+                bytes += Long.parseLong(matcher.group(1));
+            }
+        }
+        return bytes;
+    }
+}
@@ -0,0 +1,62 @@
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+import org.openapitools.codegen.CodegenConstants;
+import tech.aomi.codegen.AbstractGoWebServerGenerator;
+import tech.aomi.codegen.GenerationJob;
+import tech.aomi.codegen.MyDartDioClientCodegen;
+import tech.aomi.codegen.OutputTree;
+import tech.aomi.codegen.SpecSynthesizer;
+
+import java.io.File;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+
+public class ParallelGeneratorTest {
+
+    private static final List<String> GENERATORS = Arrays.asList("my-go-gin-server", "go-zero-server", "go-zero-server-api", "my-dart-dio");
+
+    private static final int[] WORKERS = {2, 3, 8};
+
+    // 并行渲染、写入文件时, 不同线程数生成的文件都必须与单线程完全一致
+    @Test
+    public void sameOutputAsSerial() throws Exception {
+        String spec = new SpecSynthesizer()
+                .schemas(120)
+                .propertiesPerSchema(10)
+                .tags(6)
+                .folders(5)
+                .nestingDepth(2)
+                .oneOfRatio(0.2)
+                .validationDensity(0.5)
+                .inheritanceDepth(3)
+                .writeTo(new File("target/parallel-generator/openapi.json"));
+
+        for (String generator : GENERATORS) {
+            Map<String, String> serial = OutputTree.read(generate(generator, spec, 1));
+            Assertions.assertFalse(serial.isEmpty(), generator);
+            for (int workers : WORKERS) {
+                Assertions.assertEquals(serial, OutputTree.read(generate(generator, spec, workers)),
+                        generator + " with " + workers + " workers");
+            }
+        }
+    }
+
+    private static File generate(String generatorName, String spec, int workers) throws Exception {
+        File output = new File("target/parallel-generator/" + generatorName + "/workers-" + workers);
+        OutputTree.delete(output);
+        GenerationJob job = new GenerationJob();
+        job.setGeneratorName(generatorName);
+        job.setInputSpec(spec);
+        job.setOutputDir(output.getPath());
+        job.setWorkers(workers);
+        job.getAdditionalProperties().put(AbstractGoWebServerGenerator.MODULE_NAME, "github.com/demo/app");
+        job.getAdditionalProperties().put(AbstractGoWebServerGenerator.MODEL_FOLDER_FIELD_NAME, "x-apifox-folder");
+        job.getAdditionalProperties().put("pubName", "demo");
+        job.getAdditionalProperties().put(MyDartDioClientCodegen.BASE_PUB_NAME, "base");
+        // 合成文档中 schema 互相引用, 上游 ExampleGenerator 的示例会指数增长
+        job.getAdditionalProperties().put(CodegenConstants.SKIP_OPERATION_EXAMPLE, "true");
+        job.run();
+        return output;
+    }
+}
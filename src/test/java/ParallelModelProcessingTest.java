@@ -0,0 +1,70 @@
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+import org.openapitools.codegen.CodegenConstants;
+import tech.aomi.codegen.AbstractGoWebServerGenerator;
+import tech.aomi.codegen.GenerationJob;
+import tech.aomi.codegen.OutputTree;
+import tech.aomi.codegen.SpecSynthesizer;
+
+import java.io.File;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+
+public class ParallelModelProcessingTest {
+
+    private static final List<String> GENERATORS = Arrays.asList("my-go-gin-server", "go-zero-server", "go-zero-server-api");
+
+    private static final int[] THREADS = {2, 3, 8};
+
+    // 并行处理 model 时, 不同线程数生成的文件都必须与串行处理完全一致
+    @Test
+    public void sameOutputAsSerial() throws Exception {
+        String spec = new SpecSynthesizer()
+                .schemas(120)
+                .propertiesPerSchema(10)
+                .tags(4)
+                .folders(5)
+                .nestingDepth(2)
+                .oneOfRatio(0.2)
+                .validationDensity(0.5)
+                .inheritanceDepth(3)
+                .writeTo(new File("target/parallel-models/openapi.json"));
+
+        for (String generator : GENERATORS) {
+            Map<String, String> serial = OutputTree.read(generate(generator, spec, 0, false));
+            Assertions.assertFalse(serial.isEmpty(), generator);
+            for (int threads : THREADS) {
+                Assertions.assertEquals(serial, OutputTree.read(generate(generator, spec, threads, false)),
+                        generator + " with " + threads + " threads");
+            }
+            // 低内存模式的 needImport 在并行结束后按顺序处理
+            Assertions.assertEquals(serial, OutputTree.read(generate(generator, spec, THREADS[1], true)),
+                    generator + " with " + THREADS[1] + " threads in lowMemoryMode");
+        }
+    }
+
+    /**
+     * @param threads 0 表示串行处理
+     */
+    private static File generate(String generatorName, String spec, int threads, boolean lowMemoryMode) throws Exception {
+        File output = new File("target/parallel-models/" + generatorName + "/"
+                + (threads == 0 ? "serial" : "threads-" + threads) + (lowMemoryMode ? "-low-memory" : ""));
+        OutputTree.delete(output);
+        GenerationJob job = new GenerationJob();
+        job.setGeneratorName(generatorName);
+        job.setInputSpec(spec);
+        job.setOutputDir(output.getPath());
+        job.getAdditionalProperties().put(AbstractGoWebServerGenerator.MODULE_NAME, "github.com/demo/app");
+        job.getAdditionalProperties().put(AbstractGoWebServerGenerator.MODEL_FOLDER_FIELD_NAME, "x-apifox-folder");
+        // 合成文档中 schema 互相引用, 上游 ExampleGenerator 的示例会指数增长
+        job.getAdditionalProperties().put(CodegenConstants.SKIP_OPERATION_EXAMPLE, "true");
+        job.getAdditionalProperties().put(AbstractGoWebServerGenerator.LOW_MEMORY_MODE, String.valueOf(lowMemoryMode));
+        if (threads > 0) {
+            job.getAdditionalProperties().put(AbstractGoWebServerGenerator.PARALLEL_MODEL_PROCESSING, "true");
+            job.getAdditionalProperties().put(AbstractGoWebServerGenerator.MODEL_PROCESSING_THREADS, String.valueOf(threads));
+        }
+        job.run();
+        return output;
+    }
+}
@@ -0,0 +1,134 @@
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+import org.openapitools.codegen.ClientOptInput;
+import org.openapitools.codegen.CodegenConstants;
+import org.openapitools.codegen.DefaultGenerator;
+import org.openapitools.codegen.config.CodegenConfigurator;
+import org.openapitools.codegen.config.GlobalSettings;
+import tech.aomi.codegen.AbstractGoWebServerGenerator;
+import tech.aomi.codegen.MyDartDioClientCodegen;
+import tech.aomi.codegen.SpecSynthesizer;
+
+import java.io.File;
+import java.io.IOException;
+import java.lang.management.ManagementFactory;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Stream;
+
+/**
+ * 端到端的规模测试: 按接口数量逐级增大文档, 记录每个生成器的耗时和分配的内存,
+ * 相邻两级之间的增长指数(log(t2/t1) / log(n2/n1))超过阈值时失败, 用于发现平方级的退化.
+ * <p>
+ * mvn test -Pscaling -Dscaling.sizes=250,500,1000,2000 -Dscaling.maxExponent=1.5
+ */
+public class ScalingTest {
+
+    private static final List<String> GENERATORS = Arrays.asList(
+            "my-go-gin-server", "go-zero-server", "go-zero-server-api", "my-dart-dio");
+
+    @Test
+    public void scaling() throws IOException {
+        int[] sizes = Arrays.stream(System.getProperty("scaling.sizes", "250,500,1000,2000").split(","))
+                .map(String::trim).mapToInt(Integer::parseInt).sorted().toArray();
+        double maxExponent = Double.parseDouble(System.getProperty("scaling.maxExponent", "1.5"));
+        int repeat = Integer.parseInt(System.getProperty("scaling.repeat", "2"));
+        List<String> generators = System.getProperty("scaling.generators") == null
+                ? GENERATORS : Arrays.asList(System.getProperty("scaling.generators").split(","));
+
+        Map<Integer, String> specs = new HashMap<>();
+        for (int size : sizes) {
+            specs.put(size, new SpecSynthesizer()
+                    .operations(size)
+                    .schemas(Math.max(1, size / 2))
+                    .tags(Math.max(1, size / 50))
+                    .nestingDepth(2)
+                    .oneOfRatio(0.1)
+                    .validationDensity(0.5)
+                    .writeTo(new File("target/scaling/specs/operations-" + size + ".json")));
+        }
+
+        List<String> failures = new ArrayList<>();
+        for (String generator : generators) {
+            // 预热, 避免第一级包含 JIT 和类加载的时间
+            measure(generator, specs.get(sizes[0]), 1);
+
+            long[] previous = null;
+            for (int i = 0; i < sizes.length; i++) {
+                long[] current = measure(generator, specs.get(sizes[i]), repeat);
+                StringBuilder line = new StringBuilder(String.format("%-20s %6d operations: %6d ms, %8d KB allocated",
+                        generator, sizes[i], current[0] / 1_000_000, current[1] / 1024));
+                if (null != previous) {
+                    double scale = Math.log((double) sizes[i] / sizes[i - 1]);
+                    double timeExponent = Math.log((double) current[0] / previous[0]) / scale;
+                    double allocationExponent = Math.log((double) current[1] / previous[1]) / scale;
+                    line.append(String.format(", exponent time %.2f, allocation %.2f", timeExponent, allocationExponent));
+                    if (timeExponent > maxExponent || allocationExponent > maxExponent) {
+                        failures.add(String.format("%s %d -> %d operations: time exponent %.2f, allocation exponent %.2f, max %.2f",
+                                generator, sizes[i - 1], sizes[i], timeExponent, allocationExponent, maxExponent));
+                    }
+                }
+                System.out.println(line);
+                previous = current;
+            }
+        }
+        Assertions.assertTrue(failures.isEmpty(), String.join("\n", failures));
+    }
+
+    /**
+     * @return [最短的耗时(ns), 对应的分配内存(byte)]
+     */
+    private long[] measure(String generatorName, String spec, int repeat) throws IOException {
+        long[] best = null;
+        for (int i = 0; i < repeat; i++) {
+            Map<String, Object> properties = new HashMap<>();
+            properties.put(AbstractGoWebServerGenerator.MODULE_NAME, "github.com/demo/app");
+            properties.put(AbstractGoWebServerGenerator.MODEL_FOLDER_FIELD_NAME, "x-apifox-folder");
+            properties.put("pubName", "demo");
+            properties.put(MyDartDioClientCodegen.BASE_PUB_NAME, "base");
+            // 合成文档中 schema 互相引用, 上游 ExampleGenerator 的示例会指数增长, 且不属于本项目的代码
+            properties.put(CodegenConstants.SKIP_OPERATION_EXAMPLE, "true");
+
+            File output = new File("target/scaling/out/" + generatorName);
+            delete(output.toPath());
+            long start = System.nanoTime();
+            long allocatedBefore = allocatedBytes();
+            try {
+                ClientOptInput input = new CodegenConfigurator()
+                        .setGeneratorName(generatorName)
+                        .setInputSpec(spec)
+                        .setAdditionalProperties(properties)
+                        .setOutputDir(output.getPath())
+                        .toClientOptInput();
+                new DefaultGenerator().opts(input).generate();
+            } finally {
+                GlobalSettings.reset();
+            }
+            long[] current = {System.nanoTime() - start, allocatedBytes() - allocatedBefore};
+            if (null == best || current[0] < best[0]) {
+                best = current;
+            }
+        }
+        return best;
+    }
+
+    private static long allocatedBytes() {
+        com.sun.management.ThreadMXBean bean = (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+        return bean.getThreadAllocatedBytes(Thread.currentThread().getId());
+    }
+
+    private static void delete(Path dir) throws IOException {
+        if (!Files.exists(dir)) {
+            return;
+        }
+        try (Stream<Path> files = Files.walk(dir)) {
+            files.sorted(Comparator.reverseOrder()).forEach(file -> file.toFile().delete());
+        }
+    }
+}
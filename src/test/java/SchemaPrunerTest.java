@@ -0,0 +1,91 @@
+import io.swagger.parser.OpenAPIParser;
+import io.swagger.v3.oas.models.OpenAPI;
+import io.swagger.v3.parser.core.models.ParseOptions;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+import org.openapitools.codegen.config.GlobalSettings;
+import tech.aomi.codegen.MyGoGinServerGenerator;
+import tech.aomi.codegen.SchemaPruner;
+
+import java.util.Arrays;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.function.Function;
+
+public class SchemaPrunerTest {
+
+    @AfterEach
+    public void reset() {
+        GlobalSettings.reset();
+    }
+
+    @Test
+    public void oneOfMembers() {
+        assertReachable(reachable(), "Cat", "Dog");
+    }
+
+    @Test
+    public void arrayItems() {
+        // 数组元素及其属性引用的 schema
+        assertReachable(reachable(), "Owner", "Address");
+    }
+
+    @Test
+    public void discriminatorSubtypes() {
+        // mapping 中的引用和直接使用名称, 以及不在 mapping 中但通过 allOf 继承父类的 schema
+        assertReachable(reachable(), "Shape", "Circle", "Square", "Triangle");
+    }
+
+    @Test
+    public void componentParametersAndRequestBodies() {
+        // OrderStatus 只被 components.parameters 引用, Shape 只被 components.requestBodies 引用.
+        // resolve 时解析器会把接口中引用的参数展开, 不解析才会经过 components 查找
+        assertReachable(new TreeSet<>(SchemaPruner.reachableSchemas(read(false), Function.identity())), "OrderStatus", "Shape");
+    }
+
+    @Test
+    public void apisFilter() {
+        GlobalSettings.setProperty("apis", "owner,order");
+        Assertions.assertEquals(set("Owner", "Address", "Order", "OrderStatus"), reachable());
+    }
+
+    @Test
+    public void internalOperationsAreSkipped() {
+        Assertions.assertFalse(reachable().contains("InternalOnly"));
+        GlobalSettings.setProperty("apis", "pet");
+        Assertions.assertEquals(set("Cat", "Dog"), reachable());
+    }
+
+    @Test
+    public void droppedCount() {
+        OpenAPI openAPI = read(true);
+        int dropped = SchemaPruner.prune(openAPI, new MyGoGinServerGenerator());
+        // 没有被引用的父类, 其子类也不保留
+        Assertions.assertEquals(3, dropped);
+        Assertions.assertEquals(set("Cat", "Dog", "Owner", "Address", "Shape", "Circle", "Square", "Triangle", "Order", "OrderStatus"),
+                new TreeSet<>(openAPI.getComponents().getSchemas().keySet()));
+    }
+
+    private static Set<String> reachable() {
+        return new TreeSet<>(SchemaPruner.reachableSchemas(read(true), Function.identity()));
+    }
+
+    private static OpenAPI read(boolean resolve) {
+        ParseOptions options = new ParseOptions();
+        options.setResolve(resolve);
+        OpenAPI openAPI = new OpenAPIParser().readLocation("src/test/resources/prune.yaml", null, options).getOpenAPI();
+        Assertions.assertNotNull(openAPI);
+        return openAPI;
+    }
+
+    private static void assertReachable(Set<String> reachable, String... names) {
+        for (String name : names) {
+            Assertions.assertTrue(reachable.contains(name), name + " not in " + reachable);
+        }
+    }
+
+    private static Set<String> set(String... names) {
+        return new TreeSet<>(Arrays.asList(names));
+    }
+}
@@ -0,0 +1,61 @@
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+import org.openapitools.codegen.CodegenConstants;
+import tech.aomi.codegen.AbstractGoWebServerGenerator;
+import tech.aomi.codegen.GenerationJob;
+import tech.aomi.codegen.MyDartDioClientCodegen;
+import tech.aomi.codegen.OutputTree;
+import tech.aomi.codegen.SharedSpec;
+import tech.aomi.codegen.SpecSynthesizer;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+
+public class SharedSpecTest {
+
+    private static final List<String> GENERATORS = Arrays.asList("my-go-gin-server", "go-zero-server", "go-zero-server-api", "my-dart-dio");
+
+    // 使用共享 spec 的副本生成的文件, 与每个生成器自己解析 spec 时完全一致
+    @Test
+    public void sameOutputAsOwnParse() throws Exception {
+        String spec = new SpecSynthesizer()
+                .schemas(40)
+                .propertiesPerSchema(8)
+                .tags(3)
+                .folders(2)
+                .nestingDepth(2)
+                .oneOfRatio(0.2)
+                .validationDensity(0.5)
+                .inheritanceDepth(3)
+                .writeTo(new File("target/shared-spec/openapi.json"));
+        SharedSpec sharedSpec = SharedSpec.parse(spec);
+
+        for (String generator : GENERATORS) {
+            File own = new File("target/shared-spec/" + generator + "/own");
+            File shared = new File("target/shared-spec/" + generator + "/shared");
+            newJob(generator, spec, own).run();
+            newJob(generator, spec, shared).run(sharedSpec);
+            Map<String, String> expected = OutputTree.read(own);
+            Assertions.assertFalse(expected.isEmpty(), generator);
+            Assertions.assertEquals(expected, OutputTree.read(shared), generator);
+        }
+    }
+
+    private static GenerationJob newJob(String generatorName, String spec, File output) throws IOException {
+        OutputTree.delete(output);
+        GenerationJob job = new GenerationJob();
+        job.setGeneratorName(generatorName);
+        job.setInputSpec(spec);
+        job.setOutputDir(output.getPath());
+        job.getAdditionalProperties().put(AbstractGoWebServerGenerator.MODULE_NAME, "github.com/demo/app");
+        job.getAdditionalProperties().put(AbstractGoWebServerGenerator.MODEL_FOLDER_FIELD_NAME, "x-apifox-folder");
+        job.getAdditionalProperties().put("pubName", "demo");
+        job.getAdditionalProperties().put(MyDartDioClientCodegen.BASE_PUB_NAME, "base");
+        // 合成文档中 schema 互相引用, 上游 ExampleGenerator 的示例会指数增长
+        job.getAdditionalProperties().put(CodegenConstants.SKIP_OPERATION_EXAMPLE, "true");
+        return job;
+    }
+}
@@ -0,0 +1,59 @@
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+import org.openapitools.codegen.CodegenConstants;
+import tech.aomi.codegen.AbstractGoWebServerGenerator;
+import tech.aomi.codegen.GenerationJob;
+import tech.aomi.codegen.OutputTree;
+import tech.aomi.codegen.ParallelGenerator;
+import tech.aomi.codegen.SpecSynthesizer;
+
+import java.io.File;
+import java.nio.file.Files;
+import java.nio.file.attribute.FileTime;
+import java.util.List;
+import java.util.Map;
+
+public class SkipUnchangedTest {
+
+    // 上游的 enableMinimalUpdate 与 skipUnchanged 效果相同: 第二次生成时内容相同的文件都不写入, 修改时间不变
+    @Test
+    public void minimalUpdateSkipsUnchangedFiles() throws Exception {
+        String spec = new SpecSynthesizer()
+                .schemas(20)
+                .tags(2)
+                .writeTo(new File("target/skip-unchanged/openapi.json"));
+        File output = new File("target/skip-unchanged/out");
+        OutputTree.delete(output);
+
+        GenerationJob job = new GenerationJob();
+        job.setGeneratorName("my-go-gin-server");
+        job.setInputSpec(spec);
+        job.setOutputDir(output.getPath());
+        job.getAdditionalProperties().put(AbstractGoWebServerGenerator.MODULE_NAME, "github.com/demo/app");
+        job.getAdditionalProperties().put(CodegenConstants.SKIP_OPERATION_EXAMPLE, "true");
+        job.setWorkers(2);
+        job.run();
+        // 再次生成时已存在的 .openapi-generator-ignore 不会重新生成, FILES 的内容与第一次不同
+        List<File> generated = job.run();
+        Map<String, String> expected = OutputTree.read(output);
+
+        FileTime old = FileTime.fromMillis(System.currentTimeMillis() - 3_600_000);
+        for (File file : generated) {
+            if (file.isFile()) {
+                Files.setLastModifiedTime(file.toPath(), old);
+            }
+        }
+
+        ParallelGenerator generator = job.newGenerator();
+        List<File> files = generator.opts(job.toConfigurator().setEnableMinimalUpdate(true).toClientOptInput()).generate();
+        Assertions.assertTrue(generator.isSkipUnchanged());
+        Assertions.assertEquals(0, generator.getWrittenFiles());
+        Assertions.assertTrue(generator.getUnchangedFiles() > 0);
+        Assertions.assertEquals(expected, OutputTree.read(output));
+        for (File file : files) {
+            if (file.isFile() && !file.getPath().contains(".openapi-generator")) {
+                Assertions.assertEquals(old, Files.getLastModifiedTime(file.toPath()), file.getPath());
+            }
+        }
+    }
+}
@@ -0,0 +1,133 @@
+import io.swagger.v3.core.util.Json;
+import io.swagger.v3.oas.models.Components;
+import io.swagger.v3.oas.models.OpenAPI;
+import io.swagger.v3.oas.models.Operation;
+import io.swagger.v3.oas.models.PathItem;
+import io.swagger.v3.oas.models.Paths;
+import io.swagger.v3.oas.models.info.Info;
+import io.swagger.v3.oas.models.media.ArraySchema;
+import io.swagger.v3.oas.models.media.Content;
+import io.swagger.v3.oas.models.media.IntegerSchema;
+import io.swagger.v3.oas.models.media.MediaType;
+import io.swagger.v3.oas.models.media.NumberSchema;
+import io.swagger.v3.oas.models.media.ObjectSchema;
+import io.swagger.v3.oas.models.media.Schema;
+import io.swagger.v3.oas.models.media.StringSchema;
+import io.swagger.v3.oas.models.parameters.Parameter;
+import io.swagger.v3.oas.models.parameters.RequestBody;
+import io.swagger.v3.oas.models.responses.ApiResponse;
+import io.swagger.v3.oas.models.responses.ApiResponses;
+import io.swagger.v3.oas.models.tags.Tag;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+import org.openapitools.codegen.CodegenConstants;
+import tech.aomi.codegen.AbstractGoWebServerGenerator;
+import tech.aomi.codegen.GenerationJob;
+import tech.aomi.codegen.OutputTree;
+
+import java.io.File;
+import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+
+public class ValidTagTest {
+
+    private static final List<String> GENERATORS = Arrays.asList("my-go-gin-server", "go-zero-server", "go-zero-server-api");
+
+    // ValidTagBuilder 生成的校验 tag 与逐个展开 valid*.mustache 的结果一致, 覆盖所有条件类型
+    @Test
+    public void sameOutputAsPartials() throws Exception {
+        File spec = new File("target/valid-tag/openapi.json");
+        spec.getParentFile().mkdirs();
+        Files.write(spec.toPath(), Json.pretty(openAPI()).getBytes(StandardCharsets.UTF_8));
+
+        for (String generator : GENERATORS) {
+            Map<String, String> partials = OutputTree.read(generate(generator, spec, false));
+            Map<String, String> precomputed = OutputTree.read(generate(generator, spec, true));
+            Assertions.assertEquals(partials, precomputed, generator);
+
+            String all = String.join("\n", precomputed.values());
+            List<String> expected = generator.equals("my-go-gin-server")
+                    ? Arrays.asList("binding:\"oneof='active' 'disabled'\"", "binding:\"required,email\"", "binding:\"required,uuid\"",
+                    "binding:\"ipv4\"", "binding:\"ipv6\"", "binding:\"hostname\"", "binding:\"uri\"",
+                    "binding:\"max=5,min=1,unique\"", "binding:\"max=8,min=2,regexp=/^[a-z]+$/,required\"",
+                    "binding:\"min=0,max=100,multipleOf=0.5\"", "binding:\"min=1,max=50\"")
+                    // go-zero 的 minimum/maximum 合并为 range
+                    : Arrays.asList(",options=[active,disabled]\"", ",required_xxx,email\"", ",required_xxx,uuid\"",
+                    ",ipv4\"", ",ipv6\"", ",hostname\"", ",uri\"", ",max=5,min=1,unique\"",
+                    ",max=8,min=2,regexp=/^[a-z]+$/,required_xxx\"", ",range=[0:100],multipleOf=0.5\"",
+                    ",range=[1:]\"", ",range=[:9]\"", ",range=[1:50]\"");
+            for (String fragment : expected) {
+                Assertions.assertTrue(all.contains(fragment), generator + " missing " + fragment);
+            }
+        }
+    }
+
+    private static File generate(String generatorName, File spec, boolean precompute) throws Exception {
+        File output = new File("target/valid-tag/" + generatorName + "/" + (precompute ? "precomputed" : "partials"));
+        OutputTree.delete(output);
+        GenerationJob job = new GenerationJob();
+        job.setGeneratorName(generatorName);
+        job.setInputSpec(spec.getAbsolutePath());
+        job.setOutputDir(output.getPath());
+        job.getAdditionalProperties().put(AbstractGoWebServerGenerator.MODULE_NAME, "github.com/demo/app");
+        job.getAdditionalProperties().put(AbstractGoWebServerGenerator.SUPPORT_VALID_REGEXP, "true");
+        job.getAdditionalProperties().put(AbstractGoWebServerGenerator.SUPPORT_VALID_MULTIPLE_OF, "true");
+        job.getAdditionalProperties().put(AbstractGoWebServerGenerator.PRECOMPUTE_VALID_TAGS, String.valueOf(precompute));
+        job.getAdditionalProperties().put(CodegenConstants.SKIP_OPERATION_EXAMPLE, "true");
+        job.run();
+        return output;
+    }
+
+    /**
+     * 一个 model 和一个接口, 属性和参数包含各种校验条件
+     */
+    private static OpenAPI openAPI() {
+        ObjectSchema model = new ObjectSchema();
+        model.addProperty("status", new StringSchema()._enum(Arrays.asList("active", "disabled")));
+        model.addProperty("email", new StringSchema().format("email"));
+        model.addProperty("id", new StringSchema().format("uuid"));
+        model.addProperty("ip", new StringSchema().format("ipv4"));
+        model.addProperty("ip6", new StringSchema().format("ipv6"));
+        model.addProperty("host", new StringSchema().format("hostname"));
+        model.addProperty("site", new StringSchema().format("uri"));
+        model.addProperty("tags", new ArraySchema().items(new StringSchema()).uniqueItems(true).minItems(1).maxItems(5));
+        model.addProperty("code", new StringSchema().pattern("^[a-z]+$").minLength(2).maxLength(8));
+        model.addProperty("amount", new NumberSchema().multipleOf(new BigDecimal("0.5"))
+                .minimum(BigDecimal.ZERO).maximum(BigDecimal.valueOf(100)));
+        model.addProperty("low", new IntegerSchema().minimum(BigDecimal.ONE));
+        model.addProperty("high", new IntegerSchema().maximum(BigDecimal.valueOf(9)));
+        model.addProperty("createdBy", new StringSchema().readOnly(true));
+        model.setRequired(Arrays.asList("email", "code", "createdBy"));
+
+        Content content = new Content().addMediaType("application/json",
+                new MediaType().schema(new Schema<>().$ref("#/components/schemas/Validated")));
+        Operation operation = new Operation()
+                .addTagsItem("validated")
+                .operationId("updateValidated")
+                .addParametersItem(new Parameter().in("path").name("id").required(true).schema(new StringSchema().format("uuid")))
+                .addParametersItem(new Parameter().in("query").name("status").schema(new StringSchema()._enum(Arrays.asList("active", "disabled"))))
+                .addParametersItem(new Parameter().in("query").name("ip").schema(new StringSchema().format("ipv4")))
+                .addParametersItem(new Parameter().in("query").name("ip6").schema(new StringSchema().format("ipv6")))
+                .addParametersItem(new Parameter().in("query").name("host").schema(new StringSchema().format("hostname")))
+                .addParametersItem(new Parameter().in("query").name("page").schema(new IntegerSchema()
+                        .minimum(BigDecimal.ONE).maximum(BigDecimal.valueOf(50))))
+                .addParametersItem(new Parameter().in("query").name("size").schema(new IntegerSchema().multipleOf(BigDecimal.TEN)))
+                .addParametersItem(new Parameter().in("query").name("ids").schema(new ArraySchema()
+                        .items(new StringSchema()).uniqueItems(true).maxItems(10)))
+                .addParametersItem(new Parameter().in("query").name("q").required(true).schema(new StringSchema()
+                        .pattern("^[a-z]+$").maxLength(32)))
+                .addParametersItem(new Parameter().in("header").name("X-Email").schema(new StringSchema().format("email")))
+                .requestBody(new RequestBody().required(true).content(content))
+                .responses(new ApiResponses().addApiResponse("200", new ApiResponse().description("OK").content(content)));
+
+        return new OpenAPI()
+                .info(new Info().title("valid-tag").version("1.0.0"))
+                .addTagsItem(new Tag().name("validated"))
+                .components(new Components().addSchemas("Validated", model))
+                .paths(new Paths().addPathItem("/validated/{id}", new PathItem().post(operation)));
+    }
+}
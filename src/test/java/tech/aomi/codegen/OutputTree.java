@@ -0,0 +1,44 @@
+package tech.aomi.codegen;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Comparator;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.stream.Stream;
+
+/**
+ * 读取生成结果目录, 用于比较两次生成的输出是否完全一致
+ */
+public final class OutputTree {
+
+    private OutputTree() {
+    }
+
+    /**
+     * 相对路径 -> 文件内容, 按路径排序, 断言失败时可以直接看到差异
+     */
+    public static Map<String, String> read(File dir) throws IOException {
+        Map<String, String> files = new TreeMap<>();
+        Path root = dir.toPath();
+        try (Stream<Path> paths = Files.walk(root)) {
+            for (Path path : (Iterable<Path>) paths.filter(Files::isRegularFile)::iterator) {
+                files.put(root.relativize(path).toString().replace(File.separatorChar, '/'),
+                        new String(Files.readAllBytes(path), StandardCharsets.UTF_8));
+            }
+        }
+        return files;
+    }
+
+    public static void delete(File dir) throws IOException {
+        if (!dir.exists()) {
+            return;
+        }
+        try (Stream<Path> paths = Files.walk(dir.toPath())) {
+            paths.sorted(Comparator.reverseOrder()).forEach(path -> path.toFile().delete());
+        }
+    }
+}
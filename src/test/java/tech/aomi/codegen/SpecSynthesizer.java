@@ -0,0 +1,273 @@
+package tech.aomi.codegen;
+
+import io.swagger.v3.core.util.Json;
+import io.swagger.v3.oas.models.Components;
+import io.swagger.v3.oas.models.OpenAPI;
+import io.swagger.v3.oas.models.Operation;
+import io.swagger.v3.oas.models.PathItem;
+import io.swagger.v3.oas.models.Paths;
+import io.swagger.v3.oas.models.info.Info;
+import io.swagger.v3.oas.models.media.ArraySchema;
+import io.swagger.v3.oas.models.media.ComposedSchema;
+import io.swagger.v3.oas.models.media.Content;
+import io.swagger.v3.oas.models.media.DateTimeSchema;
+import io.swagger.v3.oas.models.media.IntegerSchema;
+import io.swagger.v3.oas.models.media.MediaType;
+import io.swagger.v3.oas.models.media.ObjectSchema;
+import io.swagger.v3.oas.models.media.Schema;
+import io.swagger.v3.oas.models.media.StringSchema;
+import io.swagger.v3.oas.models.parameters.Parameter;
+import io.swagger.v3.oas.models.parameters.RequestBody;
+import io.swagger.v3.oas.models.responses.ApiResponse;
+import io.swagger.v3.oas.models.responses.ApiResponses;
+import io.swagger.v3.oas.models.tags.Tag;
+
+import java.io.File;
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+
+/**
+ * 生成指定规模的 OpenAPI 文档, 用于测试大文档下的生成表现
+ */
+public class SpecSynthesizer {
+
+    /**
+     * schema 数量
+     */
+    private int schemas = 100;
+
+    /**
+     * 每个 schema 的属性数量
+     */
+    private int propertiesPerSchema = 20;
+
+    /**
+     * tag 数量, 每个 tag 下的接口使用一部分 schema
+     */
+    private int tags = 10;
+
+    /**
+     * schema 分布的目录数量, 对应 x-apifox-folder
+     */
+    private int folders = 5;
+
+    /**
+     * 目录使用的扩展字段
+     */
+    private String folderExtension = "x-apifox-folder";
+
+    /**
+     * 接口数量, 不大于 0 时每个 schema 对应 get/put 两个接口
+     */
+    private int operations;
+
+    /**
+     * 每个 schema 内联嵌套对象的层数
+     */
+    private int nestingDepth;
+
+    /**
+     * 包含 oneOf 属性的 schema 比例(0~1), 每个额外生成一个 oneOf schema
+     */
+    private double oneOfRatio;
+
+    /**
+     * 带校验规则(长度、范围、正则)的属性比例(0~1)
+     */
+    private double validationDensity = 1;
+
+    /**
+     * allOf 继承链的长度, 大于 1 时每 inheritanceDepth 个相邻的 schema 组成一条继承链, 后一个继承前一个
+     */
+    private int inheritanceDepth;
+
+    public SpecSynthesizer schemas(int schemas) {
+        this.schemas = schemas;
+        return this;
+    }
+
+    public SpecSynthesizer propertiesPerSchema(int propertiesPerSchema) {
+        this.propertiesPerSchema = propertiesPerSchema;
+        return this;
+    }
+
+    public SpecSynthesizer tags(int tags) {
+        this.tags = tags;
+        return this;
+    }
+
+    public SpecSynthesizer folders(int folders) {
+        this.folders = folders;
+        return this;
+    }
+
+    public SpecSynthesizer folderExtension(String folderExtension) {
+        this.folderExtension = folderExtension;
+        return this;
+    }
+
+    public SpecSynthesizer operations(int operations) {
+        this.operations = operations;
+        return this;
+    }
+
+    public SpecSynthesizer nestingDepth(int nestingDepth) {
+        this.nestingDepth = nestingDepth;
+        return this;
+    }
+
+    public SpecSynthesizer oneOfRatio(double oneOfRatio) {
+        this.oneOfRatio = oneOfRatio;
+        return this;
+    }
+
+    public SpecSynthesizer validationDensity(double validationDensity) {
+        this.validationDensity = validationDensity;
+        return this;
+    }
+
+    public SpecSynthesizer inheritanceDepth(int inheritanceDepth) {
+        this.inheritanceDepth = inheritanceDepth;
+        return this;
+    }
+
+    public OpenAPI build() {
+        OpenAPI openAPI = new OpenAPI()
+                .info(new Info().title("synthesized").version("1.0.0"))
+                .components(new Components())
+                .paths(new Paths());
+
+        for (int i = 0; i < schemas; i++) {
+            openAPI.getComponents().addSchemas(schemaName(i), inheritanceDepth > 1 && i % inheritanceDepth != 0 ? child(i) : schema(i));
+            if (selected(i, 0, oneOfRatio)) {
+                openAPI.getComponents().addSchemas(schemaName(i) + "Variant", oneOf(i));
+            }
+        }
+
+        for (int t = 0; t < tags; t++) {
+            openAPI.addTagsItem(new Tag().name("tag" + t));
+        }
+        // 每个 path 包含 get/put 两个接口, 依次使用各个 schema, 超过 schema 数量时重复使用
+        int total = operations > 0 ? operations : schemas * 2;
+        for (int k = 0; k * 2 < total; k++) {
+            int index = k % schemas;
+            String tag = "tag" + (index % tags);
+            String path = "/" + tag + "/items" + index + (k < schemas ? "" : "/v" + k / schemas) + "/{id}";
+            openAPI.getPaths().addPathItem(path, pathItem(tag, index, k, k * 2 + 1 < total));
+        }
+        return openAPI;
+    }
+
+    /**
+     * 生成文档并以 json 格式写入文件(yaml 解析有大小限制), 返回文件路径
+     */
+    public String writeTo(File file) throws IOException {
+        file.getParentFile().mkdirs();
+        Files.write(file.toPath(), Json.pretty(build()).getBytes(StandardCharsets.UTF_8));
+        return file.getAbsolutePath();
+    }
+
+    private Schema<?> schema(int index) {
+        ObjectSchema schema = new ObjectSchema();
+        schema.addExtension(folderExtension, "folder" + (index % Math.max(1, folders)));
+        for (int p = 0; p < propertiesPerSchema; p++) {
+            String name = "field" + p;
+            boolean validated = selected(index, p, validationDensity);
+            switch (p % 6) {
+                case 0:
+                    schema.addProperty(name, validated ? new StringSchema().maxLength(64).minLength(1) : new StringSchema());
+                    schema.addRequiredItem(name);
+                    break;
+                case 1:
+                    schema.addProperty(name, validated
+                            ? new IntegerSchema().minimum(BigDecimal.ZERO).maximum(BigDecimal.valueOf(1000)) : new IntegerSchema());
+                    break;
+                case 2:
+                    schema.addProperty(name, new DateTimeSchema());
+                    break;
+                case 3:
+                    schema.addProperty(name, validated ? new StringSchema().pattern("^[a-z0-9]+$") : new StringSchema());
+                    break;
+                case 4:
+                    schema.addProperty(name, new Schema<>().$ref(schemaName((index + p) % schemas)));
+                    break;
+                default:
+                    schema.addProperty(name, new ArraySchema().items(new Schema<>().$ref(schemaName((index + 1) % schemas))));
+                    break;
+            }
+        }
+        if (nestingDepth > 0) {
+            schema.addProperty("nested", nested(index, nestingDepth));
+        }
+        if (selected(index, 0, oneOfRatio)) {
+            schema.addProperty("variant", new Schema<>().$ref(schemaName(index) + "Variant"));
+        }
+        return schema;
+    }
+
+    /**
+     * 通过 allOf 继承前一个 schema
+     */
+    private Schema<?> child(int index) {
+        ComposedSchema schema = new ComposedSchema();
+        schema.addExtension(folderExtension, "folder" + (index % Math.max(1, folders)));
+        schema.addAllOfItem(new Schema<>().$ref(schemaName(index - 1)));
+        Schema<?> own = schema(index);
+        own.getExtensions().remove(folderExtension);
+        schema.addAllOfItem(own);
+        return schema;
+    }
+
+    /**
+     * 内联的嵌套对象, 生成时会被提取为独立的 model
+     */
+    private Schema<?> nested(int index, int depth) {
+        ObjectSchema schema = new ObjectSchema();
+        schema.addProperty("name", selected(index, depth, validationDensity) ? new StringSchema().maxLength(32) : new StringSchema());
+        schema.addProperty("count", new IntegerSchema());
+        if (depth > 1) {
+            schema.addProperty("child", nested(index, depth - 1));
+        }
+        return schema;
+    }
+
+    private Schema<?> oneOf(int index) {
+        ComposedSchema schema = new ComposedSchema();
+        schema.addExtension(folderExtension, "folder" + (index % Math.max(1, folders)));
+        schema.addOneOfItem(new Schema<>().$ref(schemaName((index + 2) % schemas)));
+        schema.addOneOfItem(new Schema<>().$ref(schemaName((index + 3) % schemas)));
+        return schema;
+    }
+
+    /**
+     * 按比例确定性地选择, 相同参数每次生成的文档相同
+     */
+    private static boolean selected(int index, int salt, double ratio) {
+        return ratio > 0 && ((index * 31 + salt * 17) % 100) < ratio * 100;
+    }
+
+    private PathItem pathItem(String tag, int index, int k, boolean withPut) {
+        String ref = "#/components/schemas/" + schemaName(index);
+        Content content = new Content().addMediaType("application/json", new MediaType().schema(new Schema<>().$ref(ref)));
+        Operation get = new Operation()
+                .addTagsItem(tag)
+                .operationId("get" + schemaName(index) + (k < schemas ? "" : "V" + k / schemas))
+                .addParametersItem(new Parameter().in("path").name("id").required(true).schema(new StringSchema()))
+                .addParametersItem(new Parameter().in("query").name("keyword").schema(new StringSchema().maxLength(32)))
+                .responses(new ApiResponses().addApiResponse("200", new ApiResponse().description("OK").content(content)));
+        Operation put = new Operation()
+                .addTagsItem(tag)
+                .operationId("update" + schemaName(index) + (k < schemas ? "" : "V" + k / schemas))
+                .addParametersItem(new Parameter().in("path").name("id").required(true).schema(new StringSchema()))
+                .requestBody(new RequestBody().required(true).content(content))
+                .responses(new ApiResponses().addApiResponse("200", new ApiResponse().description("OK").content(content)));
+        PathItem item = new PathItem().get(get);
+        return withPut ? item.put(put) : item;
+    }
+
+    private static String schemaName(int index) {
+        return "Model" + index;
+    }
+}